@@ -0,0 +1,37 @@
+package com.brayton.weibo.common;
+
+import com.brayton.weibo.entity.Comment;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 评论缓存条目：comments:{postId} 列表里的一项，只存评论本身和作者 ID，
+ * 作者资料和关注关系读时再补。
+ *
+ * 编码为 "id:authorId:createdAtMillis:content"，content 放最后，可以包含冒号。
+ */
+public record CachedComment(long id, long authorId, long createdAt, String content) {
+
+    public static CachedComment of(Comment comment) {
+        return new CachedComment(
+                comment.getId(),
+                comment.getUser().getId(),
+                TimeUtil.toTs(comment.getCreatedAt()),
+                comment.getContent()
+        );
+    }
+
+    public byte[] encode() {
+        return (id + ":" + authorId + ":" + createdAt + ":" + content).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static CachedComment decode(byte[] bytes) {
+        String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":", 4);
+        return new CachedComment(
+                Long.parseLong(parts[0]),
+                Long.parseLong(parts[1]),
+                Long.parseLong(parts[2]),
+                parts[3]
+        );
+    }
+}
@@ -0,0 +1,47 @@
+package com.brayton.weibo.common;
+
+import com.brayton.weibo.error.CommonErrorCode;
+import com.brayton.weibo.error.WeiboException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * feed 分页的复合 cursor：(score, postId)，对客户端不透明。
+ *
+ * ZREVRANGEBYSCORE 的顺序是 score 降序、同 score 按成员字节逆字典序，
+ * cursor 记录上一页最后一条，下一页从它之后严格继续，同一毫秒的帖子不会被跳过。
+ * postId 为 null 表示旧版纯时间戳 cursor（score 独占）。
+ */
+public record FeedCursor(long score, Long postId) {
+
+    public String encode() {
+        String raw = score + ":" + postId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+
+        try {
+            // 兼容旧客户端传的毫秒时间戳
+            if (cursor.chars().allMatch(Character::isDigit)) {
+                return new FeedCursor(Long.parseLong(cursor), null);
+            }
+
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int sep = raw.indexOf(':');
+            return new FeedCursor(Long.parseLong(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new WeiboException(CommonErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    // 该条目在倒序时间线里是否排在 cursor 之后
+    public boolean precedes(long entryScore, byte[] member) {
+        if (entryScore != score) return entryScore < score;
+        if (postId == null) return false;
+        return Arrays.compareUnsigned(member, LongIdRedisSerializer.encode(postId)) < 0;
+    }
+}
@@ -0,0 +1,47 @@
+package com.brayton.weibo.common;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * feed:* 时间线的保留策略：长度上限、最大保留时长、不活跃过期时间。
+ * 长度上限会被后台清理任务按内存预算动态收紧。
+ */
+@Getter
+@Component
+public class FeedRetentionPolicy {
+
+    // 配置的长度上限
+    private final int maxSize;
+    // 内存超预算时最低收紧到的长度
+    private final int minSize;
+    private final Duration maxAge;
+    // 用户多久不读 feed 后整条时间线过期
+    private final Duration inactiveTtl;
+
+    // 当前生效的长度上限（写入和清理都用它）
+    private volatile int effectiveMaxSize;
+
+    public FeedRetentionPolicy(@Value("${feed.retention.max-size:1000}") int maxSize,
+                               @Value("${feed.retention.min-size:200}") int minSize,
+                               @Value("${feed.retention.max-age-days:30}") long maxAgeDays,
+                               @Value("${feed.retention.inactive-ttl-days:14}") long inactiveTtlDays) {
+        this.maxSize = maxSize;
+        this.minSize = Math.min(minSize, maxSize);
+        this.maxAge = Duration.ofDays(maxAgeDays);
+        this.inactiveTtl = Duration.ofDays(inactiveTtlDays);
+        this.effectiveMaxSize = maxSize;
+    }
+
+    public void setEffectiveMaxSize(int size) {
+        this.effectiveMaxSize = Math.max(minSize, Math.min(maxSize, size));
+    }
+
+    // 早于这个时间戳的条目应被清理
+    public long oldestAllowedTs() {
+        return System.currentTimeMillis() - maxAge.toMillis();
+    }
+}
@@ -0,0 +1,23 @@
+package com.brayton.weibo.common;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 点赞缓冲区里的一次点赞 / 取消点赞，编码为 "L|U:userId:postId:tsMillis"
+ */
+public record LikeOp(boolean like, long userId, long postId, long ts) {
+
+    public byte[] encode() {
+        return ((like ? "L" : "U") + ":" + userId + ":" + postId + ":" + ts).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static LikeOp decode(byte[] bytes) {
+        String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":");
+        return new LikeOp(
+                "L".equals(parts[0]),
+                Long.parseLong(parts[1]),
+                Long.parseLong(parts[2]),
+                Long.parseLong(parts[3])
+        );
+    }
+}
@@ -0,0 +1,91 @@
+package com.brayton.weibo.common;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Collection;
+
+/**
+ * feed / liked ZSET 成员专用的 long ID 编解码。
+ *
+ * 编码为十进制 ASCII，与 Jackson2JsonRedisSerializer 写 Long 的字节完全一致，
+ * 旧数据无需迁移；Redis 对形如整数的成员在 listpack 里按整数紧凑存储。
+ * 解码直接扫描字节，不经过 String / Jackson / 装箱。
+ */
+public class LongIdRedisSerializer implements RedisSerializer<Long> {
+
+    public static final LongIdRedisSerializer INSTANCE = new LongIdRedisSerializer();
+
+    @Override
+    public byte[] serialize(Long value) throws SerializationException {
+        return value == null ? null : encode(value);
+    }
+
+    @Override
+    public Long deserialize(byte[] bytes) throws SerializationException {
+        return bytes == null ? null : decode(bytes);
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return Long.class;
+    }
+
+    public static byte[] encode(long id) {
+        if (id == Long.MIN_VALUE) {
+            throw new SerializationException("id out of range: " + id);
+        }
+
+        boolean negative = id < 0;
+        long v = negative ? -id : id;
+
+        int len = negative ? 2 : 1;
+        for (long t = v; t >= 10; t /= 10) len++;
+
+        byte[] bytes = new byte[len];
+        for (int i = len - 1; i >= (negative ? 1 : 0); i--) {
+            bytes[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        if (negative) bytes[0] = '-';
+        return bytes;
+    }
+
+    public static long decode(byte[] bytes) {
+        int i = 0;
+        int end = bytes.length;
+
+        // 兼容被 JSON 序列化成字符串的旧成员："123"
+        if (end >= 2 && bytes[0] == '"' && bytes[end - 1] == '"') {
+            i = 1;
+            end--;
+        }
+
+        boolean negative = i < end && bytes[i] == '-';
+        if (negative) i++;
+        if (i >= end) {
+            throw new SerializationException("empty id member");
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new SerializationException("invalid id member");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    public static long[] decodeAll(Collection<byte[]> members) {
+        if (members == null) return new long[0];
+
+        long[] ids = new long[members.size()];
+        int i = 0;
+        for (byte[] member : members) {
+            ids[i++] = decode(member);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,25 @@
+package com.brayton.weibo.common;
+
+/**
+ * 当前请求的读是否固定走主库：刚写过的用户在复制延迟窗口内读自己的数据，由 PrimaryPinFilter 设置和清除。
+ * 不在请求里（定时任务、MQ 消费）时不固定，只读事务照常走副本。
+ */
+public final class PrimaryPin {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private PrimaryPin() {
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+}
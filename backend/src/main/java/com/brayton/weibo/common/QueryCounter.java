@@ -0,0 +1,37 @@
+package com.brayton.weibo.common;
+
+/**
+ * 当前请求线程上的 SQL / Redis 调用计数，由 QueryBudgetFilter 开始和结束。
+ * 不在请求里（定时任务、MQ 消费）时 sql() / redis() 什么也不做。
+ */
+public final class QueryCounter {
+
+    public record Counts(int sql, int redis) { }
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static void start() {
+        CURRENT.set(new int[2]);
+    }
+
+    public static Counts stop() {
+        int[] c = CURRENT.get();
+        CURRENT.remove();
+        return c == null ? new Counts(0, 0) : new Counts(c[0], c[1]);
+    }
+
+    // Hibernate 每准备一条语句调用一次
+    public static void sql() {
+        int[] c = CURRENT.get();
+        if (c != null) c[0]++;
+    }
+
+    // RedisService 每次往返调用一次（一个 pipeline 算一次）
+    public static void redis() {
+        int[] c = CURRENT.get();
+        if (c != null) c[1]++;
+    }
+}
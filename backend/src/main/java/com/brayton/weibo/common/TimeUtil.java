@@ -1,5 +1,6 @@
 package com.brayton.weibo.common;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 
@@ -10,4 +11,8 @@ public class TimeUtil {
                 .toInstant()
                 .toEpochMilli();
     }
+
+    public static LocalDateTime fromTs(long ts) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), ZoneId.systemDefault());
+    }
 }
@@ -0,0 +1,51 @@
+package com.brayton.weibo.common;
+
+import java.util.Arrays;
+
+/**
+ * 从 ZSET 读出的一段时间线，postIds 与 scores 一一对应，按时间线顺序排列
+ *
+ * @param hasMore 这一段之后时间线是否可能还有条目
+ */
+public record TimelineSlice(long[] postIds, long[] scores, boolean hasMore) {
+
+    public int size() {
+        return postIds.length;
+    }
+
+    public boolean isEmpty() {
+        return postIds.length == 0;
+    }
+
+    /**
+     * 归并两段时间线，取前 limit 条。
+     * 顺序与 ZREVRANGEBYSCORE 一致：score 降序，同 score 按成员字节逆字典序。
+     */
+    public static TimelineSlice merge(TimelineSlice a, TimelineSlice b, int limit) {
+        if (b.isEmpty() && !b.hasMore()) return a;
+        if (a.isEmpty() && !a.hasMore()) return b;
+
+        int n = Math.min(limit, a.size() + b.size());
+        long[] ids = new long[n];
+        long[] scores = new long[n];
+        int i = 0, j = 0;
+
+        for (int k = 0; k < n; k++) {
+            boolean takeA = j >= b.size() || (i < a.size() && comesFirst(a, i, b, j));
+            TimelineSlice src = takeA ? a : b;
+            int idx = takeA ? i++ : j++;
+            ids[k] = src.postIds[idx];
+            scores[k] = src.scores[idx];
+        }
+
+        boolean hasMore = i < a.size() || j < b.size() || a.hasMore() || b.hasMore();
+        return new TimelineSlice(ids, scores, hasMore);
+    }
+
+    private static boolean comesFirst(TimelineSlice a, int i, TimelineSlice b, int j) {
+        if (a.scores[i] != b.scores[j]) return a.scores[i] > b.scores[j];
+        return Arrays.compareUnsigned(
+                LongIdRedisSerializer.encode(a.postIds[i]),
+                LongIdRedisSerializer.encode(b.postIds[j])) > 0;
+    }
+}
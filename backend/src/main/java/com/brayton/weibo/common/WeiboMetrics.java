@@ -0,0 +1,250 @@
+package com.brayton.weibo.common;
+
+import com.brayton.weibo.dto.TimelineRetentionStats;
+import com.brayton.weibo.enums.PostVisibility;
+import com.brayton.weibo.event.EventType;
+import com.brayton.weibo.event.TimelineRetractEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 业务指标统一入口，暴露在管理端口的 /actuator/prometheus。
+ * 所有 meter 启动时按枚举预先注册，热路径上只做 EnumMap 查找，不拼 tag、不查 registry。
+ */
+@Component
+public class WeiboMetrics {
+
+    public enum Feed { NEWEST, FOLLOWING, LIKED }
+
+    public enum RedisOp {
+        FEED_WRITE, FEED_REMOVE, FEED_TOUCH, FEED_PAGE, FEED_SIZE, FEED_REBUILD_MARK,
+        LIKED_WRITE, LIKED_READ, RANDOM_SAMPLE, TRIM,
+        USER_CACHE_GET, USER_CACHE_PUT, USER_CACHE_EVICT,
+        LEADERBOARD_READ, LEADERBOARD_WRITE,
+        COMMENT_CACHE_GET, COMMENT_CACHE_WRITE,
+        LIKE_BUFFER_APPEND, LIKE_BUFFER_READ, LIKE_BUFFER_TRIM, LIKE_BUFFER_LOCK, POST_EXISTS,
+        PRIMARY_PIN
+    }
+
+    public enum Push { FOLLOW, LIKE, COMMENT, NEW_POST }
+
+    private final Map<Feed, Timer> feedTimers;
+    private final Map<Feed, Counter> feedRefills;
+    private final Map<Feed, Counter> feedStaleEntries;
+
+    private final Map<PostVisibility, Timer> fanoutTimers;
+    private final DistributionSummary fanoutWidth;
+
+    private final Map<RedisOp, Timer> redisTimers;
+
+    private final Map<TimelineRetractEvent.Reason, Counter> retractErrors;
+
+    private final Map<EventType, Timer> consumeTimers;
+    private final Map<EventType, Counter> consumeErrors;
+
+    private final Map<Push, Timer> pushTimers;
+
+    private final Counter notificationRetries;
+    private final Counter notificationDeadLetters;
+    private final Counter notificationShed;
+
+    private final Counter likeFlushErrors;
+    private final Counter likeDeadLetters;
+    private final Counter likeDropped;
+
+    private final MeterRegistry registry;
+
+    public WeiboMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        feedTimers = register(Feed.class, f -> Timer.builder("weibo.feed.assemble")
+                .description("feed 组装耗时（Redis + DB 水合）")
+                .tag("feed", tagOf(f))
+                .publishPercentileHistogram()
+                .register(registry));
+        feedRefills = register(Feed.class, f -> Counter.builder("weibo.feed.refill")
+                .description("一页没取够而补读 Redis 的次数")
+                .tag("feed", tagOf(f))
+                .register(registry));
+        feedStaleEntries = register(Feed.class, f -> Counter.builder("weibo.feed.stale.entries")
+                .description("时间线里已删除 / 不可见、水合后被丢弃的条目")
+                .tag("feed", tagOf(f))
+                .register(registry));
+
+        fanoutTimers = register(PostVisibility.class, v -> Timer.builder("weibo.fanout.duration")
+                .description("发帖扇出写时间线耗时")
+                .tag("visibility", tagOf(v))
+                .publishPercentileHistogram()
+                .register(registry));
+        fanoutWidth = DistributionSummary.builder("weibo.fanout.width")
+                .description("单次扇出写入的时间线数")
+                .serviceLevelObjectives(10, 100, 1_000, 10_000, 100_000)
+                .register(registry);
+
+        redisTimers = register(RedisOp.class, op -> Timer.builder("weibo.redis.op")
+                .description("RedisService 单次操作（一次 pipeline 算一次）")
+                .tag("op", tagOf(op))
+                .register(registry));
+
+        retractErrors = register(TimelineRetractEvent.Reason.class, r -> Counter.builder("weibo.timeline.retract.errors")
+                .description("时间线收回失败的次数（含之后重试成功的）")
+                .tag("reason", tagOf(r))
+                .register(registry));
+
+        consumeTimers = register(EventType.class, t -> Timer.builder("weibo.notification.consume")
+                .description("通知消息消费耗时")
+                .tag("type", tagOf(t))
+                .register(registry));
+        consumeErrors = register(EventType.class, t -> Counter.builder("weibo.notification.consume.errors")
+                .tag("type", tagOf(t))
+                .register(registry));
+
+        pushTimers = register(Push.class, p -> Timer.builder("weibo.ws.push")
+                .description("WebSocket 推送耗时")
+                .tag("queue", tagOf(p))
+                .register(registry));
+
+        notificationRetries = Counter.builder("weibo.notification.retry")
+                .description("消费失败、转入延迟重试队列的消息")
+                .register(registry);
+        notificationDeadLetters = Counter.builder("weibo.notification.dead")
+                .description("重试耗尽或无法解码、进入 DLQ 的消息")
+                .register(registry);
+        notificationShed = Counter.builder("weibo.notification.shed")
+                .description("队列积压时丢弃的 LIKE 通知")
+                .register(registry);
+
+        likeFlushErrors = Counter.builder("weibo.like.flush.errors")
+                .description("点赞缓冲区一批落库失败的次数")
+                .register(registry);
+        likeDeadLetters = Counter.builder("weibo.like.dead")
+                .description("重试耗尽或无法解码、转入 likes:buffer:dead 的点赞操作")
+                .register(registry);
+        likeDropped = Counter.builder("weibo.like.dropped")
+                .description("落库时帖子已不存在（确认后被删）而丢弃的缓冲点赞")
+                .register(registry);
+    }
+
+    /**
+     * feed:* 清理的最近一轮统计，以 gauge 暴露：每次抓取读 stats 的当前值，
+     * 长度分布按桶一个 gauge（tag bucket，如 "<=100"），值为落在该桶的 key 数。
+     */
+    public void timelineRetention(Supplier<TimelineRetentionStats> stats, List<String> buckets) {
+        Gauge.builder("weibo.timeline.retention.keys", () -> stats.get().getScannedKeys())
+                .description("最近一轮清理扫描到的 feed:* key 数")
+                .register(registry);
+        Gauge.builder("weibo.timeline.retention.entries", () -> stats.get().getTotalEntries())
+                .description("最近一轮清理后 feed:* 的条目总数")
+                .register(registry);
+        Gauge.builder("weibo.timeline.retention.estimated", () -> stats.get().getEstimatedBytes())
+                .description("按每条估算字节数算出的 feed:* 内存占用")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("weibo.timeline.retention.budget", () -> stats.get().getMemoryBudgetBytes())
+                .description("feed:* 的内存预算")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("weibo.timeline.retention.max.size", () -> stats.get().getEffectiveMaxSize())
+                .description("当前生效的单条时间线长度上限")
+                .register(registry);
+        for (String bucket : buckets) {
+            Gauge.builder("weibo.timeline.retention.size.keys",
+                            () -> stats.get().getSizeHistogram().getOrDefault(bucket, 0L))
+                    .description("最近一轮清理后长度落在该桶的 feed:* key 数")
+                    .tag("bucket", bucket)
+                    .register(registry);
+        }
+    }
+
+    public Timer feed(Feed feed) {
+        return feedTimers.get(feed);
+    }
+
+    public void feedRefill(Feed feed) {
+        feedRefills.get(feed).increment();
+    }
+
+    public void feedStaleEntries(Feed feed, int count) {
+        if (count > 0) feedStaleEntries.get(feed).increment(count);
+    }
+
+    public Timer fanout(PostVisibility visibility) {
+        return fanoutTimers.get(visibility);
+    }
+
+    public void fanoutWidth(int width) {
+        fanoutWidth.record(width);
+    }
+
+    // 计时，同时计入当前请求的 Redis 往返数
+    public <T> T redis(RedisOp op, Supplier<T> call) {
+        QueryCounter.redis();
+        return redisTimers.get(op).record(call);
+    }
+
+    public void retractError(TimelineRetractEvent.Reason reason) {
+        retractErrors.get(reason).increment();
+    }
+
+    public Timer push(Push push) {
+        return pushTimers.get(push);
+    }
+
+    public void notificationRetry() {
+        notificationRetries.increment();
+    }
+
+    public void notificationDeadLetter() {
+        notificationDeadLetters.increment();
+    }
+
+    public void notificationShed() {
+        notificationShed.increment();
+    }
+
+    public void likeFlushError() {
+        likeFlushErrors.increment();
+    }
+
+    public void likeDeadLetters(int count) {
+        if (count > 0) likeDeadLetters.increment(count);
+    }
+
+    public void likeDropped(int count) {
+        if (count > 0) likeDropped.increment(count);
+    }
+
+    // 消费失败也计时，同时计一次错误，异常照常抛给容器处理
+    public void consume(EventType type, Runnable handler) {
+        Timer.Sample sample = Timer.start();
+        try {
+            handler.run();
+        } catch (RuntimeException e) {
+            consumeErrors.get(type).increment();
+            throw e;
+        } finally {
+            sample.stop(consumeTimers.get(type));
+        }
+    }
+
+    private static <E extends Enum<E>, M> Map<E, M> register(Class<E> type, Function<E, M> factory) {
+        Map<E, M> meters = new EnumMap<>(type);
+        for (E e : type.getEnumConstants()) {
+            meters.put(e, factory.apply(e));
+        }
+        return meters;
+    }
+
+    private static String tagOf(Enum<?> e) {
+        return e.name().toLowerCase();
+    }
+}
@@ -0,0 +1,75 @@
+package com.brayton.weibo.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 主库 + 只读副本。
+ * 应用拿到的是 LazyConnectionDataSourceProxy：连接推迟到第一条 SQL 才取，
+ * 此时已知道事务是否 readOnly，readOnly 的交给 ReplicaRoutingDataSource，其余走主库。
+ * 没配 datasource.replica.urls 时全部走主库。
+ */
+@Configuration
+public class DataSourceConfig {
+
+    // spring.datasource.* 照旧配置主库
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // 逗号分隔多个副本，账号默认同主库；连接池其余参数沿用主库
+    @Bean(defaultCandidate = false)
+    @ConditionalOnExpression("!'${datasource.replica.urls:}'.isBlank()")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primary,
+            @Value("${datasource.replica.urls}") String urls,
+            @Value("${datasource.replica.username:}") String username,
+            @Value("${datasource.replica.password:}") String password,
+            @Value("${datasource.replica.maximum-pool-size:20}") int maximumPoolSize) {
+
+        List<String> replicaUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setJdbcUrl(replicaUrls.get(i));
+            if (!username.isBlank()) config.setUsername(username);
+            if (!password.isBlank()) config.setPassword(password);
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setPoolName("replica-" + i);
+            config.setReadOnly(true);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+                                 @Qualifier("replicaRoutingDataSource") ObjectProvider<ReplicaRoutingDataSource> replicas) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        replicas.ifAvailable(proxy::setReadOnlyDataSource);
+        return proxy;
+    }
+}
@@ -0,0 +1,84 @@
+package com.brayton.weibo.config;
+
+import com.brayton.weibo.event.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.IntStream;
+
+/**
+ * 通知队列分片：每种类型 N 个队列，按接收者 userId 取模路由。
+ * routing key notification.{type}.{shard} → 队列 notification.{type}.queue.{shard}，
+ * 同一用户的消息总在同一个分片上，分片队列是 single-active-consumer，
+ * 不管起多少个实例每个分片同一时刻只有一个消费者，因此按用户有序。
+ */
+@Component
+public class NotificationTopology {
+
+    public static final String DEAD_LETTER_QUEUE = "notification.dlq";
+
+    private final int shards;
+    // 第 i 次重试前的等待时间，指数增长，长度即最大重试次数
+    private final long[] retryDelaysMs;
+
+    public NotificationTopology(@Value("${notification.shards:8}") int shards,
+                                @Value("${notification.retry.max-attempts:3}") int maxRetries,
+                                @Value("${notification.retry.initial-delay-ms:1000}") long initialDelayMs,
+                                @Value("${notification.retry.multiplier:5}") int multiplier) {
+        this.shards = shards;
+        this.retryDelaysMs = new long[maxRetries];
+        long delay = initialDelayMs;
+        for (int i = 0; i < maxRetries; i++) {
+            retryDelaysMs[i] = delay;
+            delay *= multiplier;
+        }
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int shardOf(Long targetUserId) {
+        return (int) Math.floorMod(targetUserId, (long) shards);
+    }
+
+    public String routingKey(EventType type, Long targetUserId) {
+        return routingKey(type, shardOf(targetUserId));
+    }
+
+    public String routingKey(EventType type, int shard) {
+        return "notification." + name(type) + "." + shard;
+    }
+
+    public String queue(EventType type, int shard) {
+        return "notification." + name(type) + ".queue." + shard;
+    }
+
+    public long[] getRetryDelaysMs() {
+        return retryDelaysMs;
+    }
+
+    /*
+     * 延迟重试：消息以原队列名为 routing key 发到 notification.retry.{level}（fanout），
+     * 进入带 TTL 的 notification.retry.queue.{level}，过期后经默认交换机死信回原队列
+     */
+    public String retryExchange(int level) {
+        return "notification.retry." + level;
+    }
+
+    public String retryQueue(int level) {
+        return "notification.retry.queue." + level;
+    }
+
+    // 供 @RabbitListener(queues = "#{@notificationTopology.queues('LIKE')}") 使用
+    public String[] queues(String type) {
+        EventType eventType = EventType.valueOf(type);
+        return IntStream.range(0, shards)
+                .mapToObj(shard -> queue(eventType, shard))
+                .toArray(String[]::new);
+    }
+
+    private static String name(EventType type) {
+        return type.name().toLowerCase();
+    }
+}
@@ -0,0 +1,75 @@
+package com.brayton.weibo.config;
+
+import com.brayton.weibo.common.PrimaryPin;
+import com.brayton.weibo.config.security.CustomUserDetails;
+import com.brayton.weibo.service.RedisService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * 读自己的写：用户发起写请求时在 Redis 记一个短期标记，标记存在期间这个用户的请求全部走主库。
+ * 排在 Spring Security 之后，才能拿到当前用户；没配副本时不生效。
+ */
+@Component
+public class PrimaryPinFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final RedisService redisService;
+    private final boolean enabled;
+    private final Duration window;
+
+    public PrimaryPinFilter(RedisService redisService,
+                            @Value("${datasource.replica.urls:}") String replicaUrls,
+                            @Value("${datasource.replica.pin-seconds:5}") long pinSeconds) {
+        this.redisService = redisService;
+        this.enabled = !replicaUrls.isBlank();
+        this.window = Duration.ofSeconds(pinSeconds);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Long userId = currentUserId();
+        if (userId != null) {
+            // 写请求在执行前就打标记，响应返回后的下一次读一定能看到
+            if (!READ_METHODS.contains(request.getMethod())) {
+                redisService.pinPrimary(userId, window);
+                PrimaryPin.pin();
+            } else if (redisService.isPrimaryPinned(userId)) {
+                PrimaryPin.pin();
+            }
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PrimaryPin.clear();
+        }
+    }
+
+    private static Long currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof CustomUserDetails user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.brayton.weibo.config;
+
+import com.brayton.weibo.common.QueryCounter;
+import com.brayton.weibo.service.QueryBudgetService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * 统计每个请求的 SQL / Redis 次数，放在最外层，JWT 认证里的查询也算在内
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private final QueryBudgetService queryBudgetService;
+    private final boolean enabled;
+
+    public QueryBudgetFilter(QueryBudgetService queryBudgetService,
+                             @Value("${query.budget.enabled:true}") boolean enabled) {
+        this.queryBudgetService = queryBudgetService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            queryBudgetService.record(endpointOf(request), QueryCounter.stop());
+        }
+    }
+
+    // 用路由模板（/posts/{id}）而不是实际 URI，避免按 ID 分散
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "UNMAPPED");
+    }
+}
@@ -0,0 +1,22 @@
+package com.brayton.weibo.config;
+
+import com.brayton.weibo.common.QueryCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class QueryCountConfig {
+
+    // Hibernate 执行的每条 SQL 都会经过这里，原样返回，只计数
+    @Bean
+    public HibernatePropertiesCustomizer statementCounter() {
+        StatementInspector inspector = sql -> {
+            QueryCounter.sql();
+            return sql;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+}
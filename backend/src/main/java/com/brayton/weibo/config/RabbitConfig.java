@@ -1,69 +1,76 @@
 package com.brayton.weibo.config;
 
-import org.springframework.amqp.core.Binding;
-import org.springframework.amqp.core.BindingBuilder;
-import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.core.TopicExchange;
+import com.brayton.weibo.event.EventMessageConverter;
+import com.brayton.weibo.event.EventType;
+import com.brayton.weibo.event.NotificationRetryRecoverer;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitConfig {
 
     public static final String EXCHANGE = "notification.exchange";
 
-    public static final String FOLLOW_QUEUE = "notification.follow.queue";
-    public static final String LIKE_QUEUE = "notification.like.queue";
-    public static final String COMMENT_QUEUE = "notification.comment.queue";
-
     @Bean
     public TopicExchange notificationExchange() {
         return new TopicExchange(EXCHANGE);
     }
 
+    // 每种通知类型 notification.shards 个持久队列，见 NotificationTopology。
+    // x-single-active-consumer：多个实例都订阅同一分片时 broker 只投递给其中一个，
+    // 它断开后才切到下一个，分片内的顺序在整个集群范围成立。
+    // 队列参数不能原地修改：已存在的旧分片队列要先停写、排空后删掉，再由新版本重新声明
     @Bean
-    public Queue followQueue() {
-        return new Queue(FOLLOW_QUEUE, true);
-    }
-
-    @Bean
-    public Queue likeQueue() {
-        return new Queue(LIKE_QUEUE, true);
-    }
-
-    @Bean
-    public Queue commentQueue() {
-        return new Queue(COMMENT_QUEUE, true);
-    }
-
-    @Bean
-    public Binding bindFollow() {
-        return BindingBuilder.bind(followQueue())
-                .to(notificationExchange())
-                .with("notification.follow");
-    }
-
-    @Bean
-    public Binding bindLike() {
-        return BindingBuilder.bind(likeQueue())
-                .to(notificationExchange())
-                .with("notification.like");
+    public Declarables notificationQueues(TopicExchange notificationExchange, NotificationTopology topology) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (EventType type : EventType.values()) {
+            for (int shard = 0; shard < topology.getShards(); shard++) {
+                Queue queue = QueueBuilder.durable(topology.queue(type, shard))
+                        .singleActiveConsumer()
+                        .build();
+                declarables.add(queue);
+                declarables.add(BindingBuilder.bind(queue)
+                        .to(notificationExchange)
+                        .with(topology.routingKey(type, shard)));
+            }
+        }
+        return new Declarables(declarables);
     }
 
+    // 每一级重试一个 fanout 交换机 + 带 TTL 的队列，过期后死信回原队列；最终失败进 DLQ
     @Bean
-    public Binding bindComment() {
-        return BindingBuilder.bind(commentQueue())
-                .to(notificationExchange())
-                .with("notification.comment");
+    public Declarables notificationRetryQueues(NotificationTopology topology) {
+        List<Declarable> declarables = new ArrayList<>();
+        long[] delays = topology.getRetryDelaysMs();
+        for (int level = 0; level < delays.length; level++) {
+            FanoutExchange exchange = new FanoutExchange(topology.retryExchange(level));
+            Queue queue = QueueBuilder.durable(topology.retryQueue(level))
+                    .ttl((int) delays[level])
+                    .deadLetterExchange("")
+                    .build();
+            declarables.add(exchange);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange));
+        }
+        declarables.add(new Queue(NotificationTopology.DEAD_LETTER_QUEUE, true));
+        return new Declarables(declarables);
     }
 
+    // binary：EventCodec 二进制编码；json：原来的 Jackson 格式。接收端两种都能解，
+    // 默认 json，所有实例都能解二进制之后再切 binary
     @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter eventMessageConverter(@Value("${notification.wire-format:json}") String wireFormat) {
+        return new EventMessageConverter("binary".equalsIgnoreCase(wireFormat));
     }
 
     @Bean
@@ -72,5 +79,26 @@ public class RabbitConfig {
         template.setMessageConverter(mc);
         return template;
     }
-}
 
+    // 每个实例对每个分片队列开一个消费者，队列本身是 single-active-consumer，
+    // 所以全集群每个分片同一时刻只有一个消费者在收：分片之间并行，分片内按顺序。
+    // 处理失败不再原地 requeue，交给 NotificationRetryRecoverer 走延迟重试 / DLQ
+    @Bean
+    public DirectRabbitListenerContainerFactory notificationListenerFactory(
+            ConnectionFactory cf,
+            MessageConverter mc,
+            NotificationRetryRecoverer recoverer,
+            @Value("${notification.consumer.prefetch:50}") int prefetch) {
+        DirectRabbitListenerContainerFactory factory = new DirectRabbitListenerContainerFactory();
+        factory.setConnectionFactory(cf);
+        factory.setMessageConverter(mc);
+        factory.setConsumersPerQueue(1);
+        factory.setPrefetchCount(prefetch);
+        factory.setDefaultRequeueRejected(false);
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(1)
+                .recoverer(recoverer)
+                .build());
+        return factory;
+    }
+}
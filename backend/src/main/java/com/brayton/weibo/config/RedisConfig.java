@@ -1,5 +1,8 @@
 package com.brayton.weibo.config;
 
+import com.brayton.weibo.common.LongIdRedisSerializer;
+import com.brayton.weibo.dto.UserSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -31,4 +34,35 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    // feed:* / liked:* 时间线，成员是帖子 ID，不走 JSON
+    @Bean
+    public RedisTemplate<String, Long> timelineRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Long> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(LongIdRedisSerializer.INSTANCE);
+        template.setDefaultSerializer(LongIdRedisSerializer.INSTANCE);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    // user:summary:* 用户资料缓存，用 Spring 的 ObjectMapper（带 JavaTimeModule）按具体类型读写
+    @Bean
+    public RedisTemplate<String, UserSummary> userSummaryRedisTemplate(RedisConnectionFactory connectionFactory,
+                                                                       ObjectMapper objectMapper) {
+        RedisTemplate<String, UserSummary> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        Jackson2JsonRedisSerializer<UserSummary> serializer =
+                new Jackson2JsonRedisSerializer<>(objectMapper, UserSummary.class);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(serializer);
+        template.setDefaultSerializer(serializer);
+
+        template.afterPropertiesSet();
+        return template;
+    }
 }
@@ -0,0 +1,49 @@
+package com.brayton.weibo.config;
+
+import com.brayton.weibo.common.PrimaryPin;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读连接的去向：副本之间轮询，当前请求被 PrimaryPin 固定时回主库。
+ * 只挂在 LazyConnectionDataSourceProxy 的 readOnlyDataSource 上，读写事务不会经过这里。
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<HikariDataSource> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas) {
+        this.replicas = replicas;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (PrimaryPin.isPinned()) return PRIMARY;
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    // 主库连接池由 DataSourceConfig 单独管理，这里只关副本
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
@@ -40,6 +40,9 @@ public class SecurityConfig {
                         // 允许所有人访问登录和注册端点
                         .requestMatchers("/login", "/register", "ping").permitAll()
                         .requestMatchers("/ws/**").permitAll()
+                        // 探活和 Prometheus 抓取：actuator 只挂在内部管理端口（management.server.port），
+                        // 对外的 8080 上没有这些路径
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         // 其他所有请求都需要认证
                         .anyRequest().authenticated()
                 )
@@ -2,6 +2,7 @@ package com.brayton.weibo.controller;
 
 import com.brayton.weibo.config.security.CustomUserDetails;
 import com.brayton.weibo.dto.ApiResponse;
+import com.brayton.weibo.dto.CommentPageResponse;
 import com.brayton.weibo.dto.CommentRequest;
 import com.brayton.weibo.dto.CommentResponse;
 import com.brayton.weibo.service.CommentService;
@@ -22,8 +23,13 @@ public class CommentController {
     private final CommentService commentService;
 
     @GetMapping("/posts/{postId}/comments")
-    public ResponseEntity<ApiResponse<?>> getComments(@AuthenticationPrincipal CustomUserDetails self, @PathVariable Long postId) {
-        List<CommentResponse> comments = commentService.getCommentsByPostId(postId, self.getId());
+    public ResponseEntity<ApiResponse<?>> getComments(
+            @AuthenticationPrincipal CustomUserDetails self,
+            @PathVariable Long postId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        CommentPageResponse comments = commentService.getCommentsByPostId(postId, self.getId(), cursor, Math.min(Math.max(size, 1), 100));
         return ResponseEntity.ok(ApiResponse.success(comments));
     }
 
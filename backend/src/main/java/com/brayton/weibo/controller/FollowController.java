@@ -2,6 +2,7 @@ package com.brayton.weibo.controller;
 
 import com.brayton.weibo.config.security.CustomUserDetails;
 import com.brayton.weibo.dto.ApiResponse;
+import com.brayton.weibo.dto.UserPageResponse;
 import com.brayton.weibo.dto.UserResponse;
 import com.brayton.weibo.service.FollowService;
 import com.brayton.weibo.service.UserService;
@@ -24,21 +25,20 @@ public class FollowController {
     public ResponseEntity<ApiResponse<?>> getFollowingList(
             @PathVariable long id,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) Long lastId
+            @RequestParam(required = false) Long cursor
     ) {
-        List<UserResponse> followingList = followService.getFollowings(id, lastId, size);
-        return ResponseEntity.ok(ApiResponse.success(followingList));
+        UserPageResponse followingPage = followService.getFollowings(id, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(followingPage));
     }
 
     @GetMapping("user/{id}/followers")
     public ResponseEntity<ApiResponse<?>> getFollowerList(
             @PathVariable long id,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) Long lastId
+            @RequestParam(required = false) Long cursor
     ) {
-        System.out.println("size: " + size +  " lastId: " + lastId);
-        List<UserResponse> followerList = followService.getFollowers(id, lastId, size);
-        return ResponseEntity.ok(ApiResponse.success(followerList));
+        UserPageResponse followerPage = followService.getFollowers(id, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(followerPage));
     }
 
     @GetMapping("user/{id}/friends")
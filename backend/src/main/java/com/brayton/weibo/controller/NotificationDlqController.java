@@ -0,0 +1,29 @@
+package com.brayton.weibo.controller;
+
+import com.brayton.weibo.dto.ApiResponse;
+import com.brayton.weibo.service.NotificationDlqService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 运维用：查看通知 DLQ 积压并重放，默认关闭
+ */
+@RestController
+@AllArgsConstructor
+@ConditionalOnProperty(name = "notification.dlq.api-enabled", havingValue = "true")
+public class NotificationDlqController {
+
+    private final NotificationDlqService notificationDlqService;
+
+    @GetMapping("/internal/notifications/dlq")
+    public ResponseEntity<ApiResponse<?>> getDepth() {
+        return ResponseEntity.ok(ApiResponse.success(notificationDlqService.getDepth()));
+    }
+
+    @PostMapping("/internal/notifications/dlq/replay")
+    public ResponseEntity<ApiResponse<?>> replay(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(notificationDlqService.replay(limit)));
+    }
+}
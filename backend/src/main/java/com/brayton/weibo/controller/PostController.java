@@ -52,12 +52,12 @@ public class PostController {
 
     @GetMapping("/posts")
     public ResponseEntity<ApiResponse<?>> getNewestFeed(
-            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size,
             @AuthenticationPrincipal CustomUserDetails self
     ) {
-        List<PostResponse> posts = postService.getNewestFeed(self.getId(), cursor, size);
-        return ResponseEntity.ok(ApiResponse.success(posts));
+        FeedPageResponse page = postService.getNewestFeed(self.getId(), cursor, Math.min(Math.max(size, 1), 100));
+        return ResponseEntity.ok(ApiResponse.success(page));
     }
 
     @GetMapping("/posts/following")
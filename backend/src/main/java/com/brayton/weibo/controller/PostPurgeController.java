@@ -0,0 +1,25 @@
+package com.brayton.weibo.controller;
+
+import com.brayton.weibo.dto.ApiResponse;
+import com.brayton.weibo.service.PostPurgeService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 运维用：删帖后台清理进度，默认关闭
+ */
+@RestController
+@AllArgsConstructor
+@ConditionalOnProperty(name = "post.purge.api-enabled", havingValue = "true")
+public class PostPurgeController {
+
+    private final PostPurgeService postPurgeService;
+
+    @GetMapping("/internal/posts/purge")
+    public ResponseEntity<ApiResponse<?>> getProgress() {
+        return ResponseEntity.ok(ApiResponse.success(postPurgeService.getProgress()));
+    }
+}
@@ -0,0 +1,40 @@
+package com.brayton.weibo.controller;
+
+import com.brayton.weibo.dto.ApiResponse;
+import com.brayton.weibo.service.QueryBudgetService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 压测用：查看 / 断言每个接口的 SQL 和 Redis 次数，默认关闭
+ */
+@RestController
+@AllArgsConstructor
+@ConditionalOnProperty(name = "query.budget.api-enabled", havingValue = "true")
+public class QueryBudgetController {
+
+    private final QueryBudgetService queryBudgetService;
+
+    @GetMapping("/internal/query-budget")
+    public ResponseEntity<ApiResponse<?>> getStats() {
+        return ResponseEntity.ok(ApiResponse.success(queryBudgetService.getStats()));
+    }
+
+    // 如 ?endpoint=GET /posts&maxSql=5&maxRedis=3，超出时返回 QUERY_BUDGET_EXCEEDED
+    @GetMapping("/internal/query-budget/check")
+    public ResponseEntity<ApiResponse<?>> check(
+            @RequestParam String endpoint,
+            @RequestParam int maxSql,
+            @RequestParam(defaultValue = "2147483647") int maxRedis
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(queryBudgetService.check(endpoint, maxSql, maxRedis)));
+    }
+
+    @DeleteMapping("/internal/query-budget")
+    public ResponseEntity<ApiResponse<?>> reset() {
+        queryBudgetService.reset();
+        return ResponseEntity.ok(ApiResponse.success(null));
+    }
+}
@@ -0,0 +1,40 @@
+package com.brayton.weibo.controller;
+
+import com.brayton.weibo.dto.ApiResponse;
+import com.brayton.weibo.service.TimelineRebuildService;
+import com.brayton.weibo.service.TimelineRetentionService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 运维用：全量重建时间线、查看重建进度和保留统计，默认关闭
+ */
+@RestController
+@AllArgsConstructor
+@ConditionalOnProperty(name = "feed.admin.api-enabled", havingValue = "true")
+public class TimelineController {
+
+    private final TimelineRebuildService timelineRebuildService;
+    private final TimelineRetentionService timelineRetentionService;
+
+    // Redis 重启后触发全量重建
+    @PostMapping("/internal/timeline/rebuild")
+    public ResponseEntity<ApiResponse<?>> rebuildAll() {
+        return ResponseEntity.ok(ApiResponse.success(timelineRebuildService.rebuildAll()));
+    }
+
+    @GetMapping("/internal/timeline/rebuild")
+    public ResponseEntity<ApiResponse<?>> getRebuildProgress() {
+        return ResponseEntity.ok(ApiResponse.success(timelineRebuildService.getProgress()));
+    }
+
+    // 最近一次清理的 feed 长度分布与内存估算
+    @GetMapping("/internal/timeline/stats")
+    public ResponseEntity<ApiResponse<?>> getRetentionStats() {
+        return ResponseEntity.ok(ApiResponse.success(timelineRetentionService.getStats()));
+    }
+}
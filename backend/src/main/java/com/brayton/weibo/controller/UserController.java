@@ -2,6 +2,7 @@ package com.brayton.weibo.controller;
 
 import com.brayton.weibo.config.security.CustomUserDetails;
 import com.brayton.weibo.dto.*;
+import com.brayton.weibo.service.UserLeaderboardService;
 import com.brayton.weibo.service.UserService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -18,6 +19,7 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final UserLeaderboardService userLeaderboardService;
 
     @PostMapping("/register")
     public ResponseEntity<ApiResponse<?>> register(@Valid @RequestBody RegisterRequest request) {
@@ -37,10 +39,14 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(userResponse));
     }
 
+    // 按粉丝数排行的用户目录，cursor 分页
     @GetMapping("/users")
-    public ResponseEntity<ApiResponse<?>> getAllUsers() {
-        List<UserResponse> users = userService.getAllUsers();
-        return ResponseEntity.ok(ApiResponse.success(users));
+    public ResponseEntity<ApiResponse<?>> getUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "30") int size
+    ) {
+        LeaderboardPageResponse page = userLeaderboardService.getPage(cursor, Math.min(Math.max(size, 1), 100));
+        return ResponseEntity.ok(ApiResponse.success(page));
     }
 
     @PutMapping("/set")
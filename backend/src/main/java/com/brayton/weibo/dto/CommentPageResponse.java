@@ -0,0 +1,13 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CommentPageResponse {
+    private List<CommentResponse> comments;
+    private Long nextCursor; // 本页最后一条评论的 id，没有更多时为 null
+}
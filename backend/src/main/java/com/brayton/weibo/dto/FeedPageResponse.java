@@ -0,0 +1,13 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class FeedPageResponse {
+    List<PostResponse> posts;
+    String nextCursor; // null 表示没有更多
+}
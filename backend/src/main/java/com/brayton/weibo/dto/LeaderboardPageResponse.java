@@ -0,0 +1,13 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LeaderboardPageResponse {
+    private List<UserResponse> users;
+    private String nextCursor; // 没有更多时为 null
+}
@@ -0,0 +1,19 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class PostPurgeProgress {
+    private int pendingPosts;          // 排队中（含正在清理的）
+    private Long currentPostId;        // 正在清理的帖子，空闲时为 null
+    private long purgedPosts;
+    private long failedPosts;          // 失败的会在下次扫描时重试
+    private long deletedLikes;
+    private long deletedComments;
+    private long deletedNotifications;
+    private LocalDateTime lastPurgedAt;
+}
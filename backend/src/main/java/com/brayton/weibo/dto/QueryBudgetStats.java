@@ -0,0 +1,16 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class QueryBudgetStats {
+    private String endpoint;     // 如 "GET /posts"
+    private long requests;
+    private long overBudget;     // 超出预算的请求数
+    private int lastSql;
+    private int lastRedis;
+    private int maxSql;
+    private int maxRedis;
+}
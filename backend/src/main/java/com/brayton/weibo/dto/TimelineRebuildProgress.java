@@ -0,0 +1,18 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class TimelineRebuildProgress {
+    private boolean running;
+    private long scannedUsers;   // 已扫描的用户数
+    private long rebuiltUsers;   // 实际重建的用户数
+    private long failedUsers;
+    private long writtenEntries; // 写入 Redis 的 feed 条数
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,19 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class TimelineRetentionStats {
+    private long scannedKeys;
+    private long totalEntries;
+    private long estimatedBytes;
+    private long memoryBudgetBytes;
+    private int effectiveMaxSize;       // 当前生效的长度上限
+    private Map<String, Long> sizeHistogram; // 每个 feed:* key 的长度分布，如 "<=100" -> 123
+    private LocalDateTime lastSweepAt;
+}
@@ -0,0 +1,13 @@
+package com.brayton.weibo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserPageResponse {
+    private List<UserResponse> users;
+    private Long nextCursor; // 最后一条关注关系的 follows.id，没有更多时为 null
+}
@@ -42,4 +42,20 @@ public class UserResponse {
         this.followed = followed;
         this.postCount = postCount;
     }
+
+    public UserResponse(UserSummary summary, boolean following, boolean followed) {
+        this.id = summary.getId();
+        this.username = summary.getUsername();
+        this.gender = summary.getGender();
+        this.avatarUrl = summary.getAvatarUrl();
+        this.bio = summary.getBio();
+        this.birthday = summary.getBirthday();
+        this.joinDate = summary.getJoinDate();
+        this.followerCount = summary.getFollowerCount();
+        this.followCount = summary.getFollowCount();
+        this.friendCount = summary.getFriendCount();
+        this.following = following;
+        this.followed = followed;
+        this.postCount = summary.getPostCount();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.brayton.weibo.dto;
+
+import com.brayton.weibo.entity.User;
+import com.brayton.weibo.enums.Gender;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 用户资料快照，缓存在 Redis user:summary:{id}，不含与当前登录用户相关的字段
+ */
+@Data
+@NoArgsConstructor
+public class UserSummary {
+    private Long id;
+    private String username;
+    private Gender gender;
+    private String avatarUrl;
+    private String bio;
+    private LocalDate birthday;
+    private LocalDate joinDate;
+    private int followerCount;
+    private int followCount;
+    private int postCount;
+    private int friendCount;
+
+    public UserSummary(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.gender = user.getGender();
+        this.avatarUrl = user.getAvatarUrl();
+        this.bio = user.getBio();
+        this.birthday = user.getBirthday();
+        this.joinDate = user.getCreatedAt().toLocalDate();
+        this.followerCount = user.getFollowerCount();
+        this.followCount = user.getFollowCount();
+        this.postCount = user.getPostCount();
+        this.friendCount = user.getFriendCount();
+    }
+}
@@ -7,7 +7,8 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments",
+        indexes = {@Index(name = "idx_comments_post_id", columnList = "post_id,id")})
 @Getter
 @Setter
 @Builder
@@ -15,6 +16,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Comment {
 
+    // IDENTITY：分页游标是 id，pooled 分号在多实例下不随插入递增
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
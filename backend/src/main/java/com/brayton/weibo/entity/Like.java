@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
         name = "likes",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"user_id", "post_id"})
-        }
+        },
+        indexes = {@Index(name = "idx_likes_post_id", columnList = "post_id,id")}
 )
 @Data
 @NoArgsConstructor
@@ -11,9 +11,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "notifications")
+// 按 created_at 按月分区，见 ENTITY_SCHEMA.md 和 NotificationRetentionService
+@Table(name = "notifications",
+        indexes = {
+                @Index(name = "idx_notifications_post_id", columnList = "post_id"),
+                @Index(name = "idx_notifications_target_type_id", columnList = "target_id,type,id")
+        })
 public class Notification {
 
+    // 保持 IDENTITY：已读水位和列表排序依赖 id 随插入单调递增，pooled 分号在多实例下会乱序
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -27,8 +33,11 @@ public class Notification {
     private Long postId;        // like/comment
     private String content;     // comment content
 
+    // 旧数据的已读标记，新的已读状态看 NotificationReadState 水位
     private Boolean read = false;
 
+    // 分区键
+    @Column(nullable = false)
     private LocalDateTime createdAt;
 
     // ---- 工厂方法（推荐） ----
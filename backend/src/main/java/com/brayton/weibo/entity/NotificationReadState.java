@@ -0,0 +1,39 @@
+package com.brayton.weibo.entity;
+
+import com.brayton.weibo.event.EventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 每个用户每种通知的已读水位：id <= lastReadId 的通知都算已读，通知行本身不再更新
+ */
+@Entity
+@Table(name = "notification_read_state")
+@IdClass(NotificationReadState.Key.class)
+@Getter
+@NoArgsConstructor
+public class NotificationReadState {
+
+    @Id
+    private Long userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private EventType type;
+
+    @Column(nullable = false)
+    private Long lastReadId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private EventType type;
+    }
+}
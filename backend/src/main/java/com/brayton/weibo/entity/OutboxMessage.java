@@ -0,0 +1,44 @@
+package com.brayton.weibo.entity;
+
+import com.brayton.weibo.event.EventType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待投递的通知消息，和业务数据在同一事务里写入，由 OutboxRelayService 投递后删除
+ */
+@Entity
+@Table(name = "outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EventType type;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    // JSON 格式时的消息头 __TypeId__，二进制格式不需要
+    private String typeId;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
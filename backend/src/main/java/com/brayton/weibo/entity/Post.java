@@ -5,6 +5,7 @@ import com.brayton.weibo.enums.PostStatus;
 import com.brayton.weibo.enums.PostType;
 import com.brayton.weibo.enums.PostVisibility;
 import jakarta.persistence.*;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.*;
 import org.hibernate.annotations.*;
@@ -76,6 +77,11 @@ public class Post {
     @Column(nullable = false)
     private boolean deleted = false;
 
+    // 软删后点赞 / 评论 / 通知是否已由 PostPurgeService 清理完
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean purged;
+
     // 发布时间
     @CreationTimestamp
     private LocalDateTime createdAt;
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -53,6 +54,15 @@ public class User {
     @Column(nullable = false)
     private int followCount = 0;
 
+    // 冗余计数，随发帖 / 删帖、互关 / 取关同步更新
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int postCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int friendCount = 0;
+
     public User(String username, String passwordHashed, String email) {
         this.username = username;
         this.passwordHashed = passwordHashed;
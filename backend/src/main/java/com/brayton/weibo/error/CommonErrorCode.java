@@ -29,6 +29,8 @@ public enum CommonErrorCode implements ErrorCode {
     FILE_LIST_NULL(4002, "file list is null"),
     PICTURE_MAX_NINE(4003, "you can only upload 9 pictures"),
     R2_UPLOAD_FAILED(4004, "R2 upload failed"),
+    INVALID_CURSOR(4005, "invalid cursor"),
+    QUERY_BUDGET_EXCEEDED(4006, "query budget exceeded"),
     
     INTERNAL_ERROR(5000, "internal error"),;
 
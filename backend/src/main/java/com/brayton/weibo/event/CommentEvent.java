@@ -3,6 +3,9 @@ package com.brayton.weibo.event;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.beans.ConstructorProperties;
+import java.time.LocalDateTime;
+
 @Getter
 @AllArgsConstructor
 public class CommentEvent extends Event {
@@ -11,6 +14,21 @@ public class CommentEvent extends Event {
     private Long postId;
     private String content;
 
+    // 解码（二进制 / JSON）时使用
+    @ConstructorProperties({"fromUserId", "toUserId", "postId", "content", "timestamp"})
+    public CommentEvent(Long fromUserId, Long toUserId, Long postId, String content, LocalDateTime timestamp) {
+        super(timestamp);
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+        this.postId = postId;
+        this.content = content;
+    }
+
+    @Override
+    public Long getTargetUserId() {
+        return toUserId;
+    }
+
     @Override
     public EventType getType() {
         return EventType.COMMENT;
@@ -1,5 +1,6 @@
 package com.brayton.weibo.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 
 import java.time.LocalDateTime;
@@ -13,5 +14,14 @@ abstract public class Event {
         this.timestamp = LocalDateTime.now();
     }
 
+    // 反序列化时保留原始时间
+    protected Event(LocalDateTime timestamp) {
+        this.timestamp = timestamp;
+    }
+
     abstract public EventType getType();
+
+    // 接收通知的用户，决定消息路由到哪个分片
+    @JsonIgnore
+    abstract public Long getTargetUserId();
 }
@@ -0,0 +1,135 @@
+package com.brayton.weibo.event;
+
+import com.brayton.weibo.common.TimeUtil;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 通知事件的二进制编码：
+ * [版本 1 字节][类型标签 1 字节][时间戳 varint][字段 varint ...]，字符串为 长度 varint + UTF-8。
+ * 可空字段（postId、content）存 值 + 1 / 长度 + 1，0 表示 null。
+ * 标签和字段顺序一经发布不能改，加字段只能追加在末尾并升版本。
+ */
+public final class EventCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final byte TAG_FOLLOW = 1;
+    private static final byte TAG_LIKE = 2;
+    private static final byte TAG_COMMENT = 3;
+
+    private EventCodec() {
+    }
+
+    public static byte[] encode(Event event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        out.write(VERSION);
+        switch (event) {
+            case FollowEvent e -> {
+                out.write(TAG_FOLLOW);
+                writeVarLong(out, TimeUtil.toTs(e.getTimestamp()));
+                writeVarLong(out, e.getFollowerId());
+                writeVarLong(out, e.getFollowingId());
+            }
+            case LikeEvent e -> {
+                out.write(TAG_LIKE);
+                writeVarLong(out, TimeUtil.toTs(e.getTimestamp()));
+                writeVarLong(out, e.getFromUserId());
+                writeVarLong(out, e.getToUserId());
+                writeNullableVarLong(out, e.getPostId());
+            }
+            case CommentEvent e -> {
+                out.write(TAG_COMMENT);
+                writeVarLong(out, TimeUtil.toTs(e.getTimestamp()));
+                writeVarLong(out, e.getFromUserId());
+                writeVarLong(out, e.getToUserId());
+                writeNullableVarLong(out, e.getPostId());
+                writeNullableString(out, e.getContent());
+            }
+            default -> throw new MessageConversionException("unsupported event: " + event.getClass().getName());
+        }
+        return out.toByteArray();
+    }
+
+    public static Event decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new MessageConversionException("unsupported event version: " + version);
+        }
+
+        byte tag = in.readByte();
+        var timestamp = TimeUtil.fromTs(in.readVarLong());
+        return switch (tag) {
+            case TAG_FOLLOW -> new FollowEvent(in.readVarLong(), in.readVarLong(), timestamp);
+            case TAG_LIKE -> new LikeEvent(in.readVarLong(), in.readVarLong(), in.readNullableVarLong(), timestamp);
+            case TAG_COMMENT -> new CommentEvent(in.readVarLong(), in.readVarLong(), in.readNullableVarLong(),
+                    in.readNullableString(), timestamp);
+            default -> throw new MessageConversionException("unknown event tag: " + tag);
+        };
+    }
+
+    // 无符号 LEB128，ID 和毫秒时间戳都是非负数
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeNullableVarLong(ByteArrayOutputStream out, Long value) {
+        writeVarLong(out, value == null ? 0 : value + 1);
+    }
+
+    private static void writeNullableString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int pos;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            if (pos >= bytes.length) throw new MessageConversionException("truncated event");
+            return bytes[pos++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new MessageConversionException("malformed varint");
+        }
+
+        Long readNullableVarLong() {
+            long value = readVarLong();
+            return value == 0 ? null : value - 1;
+        }
+
+        String readNullableString() {
+            long encoded = readVarLong();
+            if (encoded == 0) return null;
+            long length = encoded - 1;
+            if (length < 0 || length > bytes.length - pos) throw new MessageConversionException("truncated event");
+            String s = new String(bytes, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.brayton.weibo.event;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * 通知消息转换器：发送时按 notification.wire-format 选择二进制（EventCodec）或 JSON，
+ * 接收时按 content-type 解码，两种格式的消息可以在滚动发布期间混在同一个队列里。
+ */
+public class EventMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE_BINARY = "application/x-weibo-event";
+
+    private final Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+    private final boolean binary;
+
+    public EventMessageConverter(boolean binary) {
+        this.binary = binary;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties props) throws MessageConversionException {
+        if (!binary || !(object instanceof Event event)) {
+            return json.toMessage(object, props);
+        }
+        props.setContentType(CONTENT_TYPE_BINARY);
+        byte[] body = EventCodec.encode(event);
+        props.setContentLength(body.length);
+        return new Message(body, props);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        if (CONTENT_TYPE_BINARY.equals(message.getMessageProperties().getContentType())) {
+            return EventCodec.decode(message.getBody());
+        }
+        return json.fromMessage(message);
+    }
+}
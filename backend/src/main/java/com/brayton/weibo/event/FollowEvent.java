@@ -3,12 +3,28 @@ package com.brayton.weibo.event;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.beans.ConstructorProperties;
+import java.time.LocalDateTime;
+
 @Getter
 @AllArgsConstructor
 public class FollowEvent extends Event {
     private Long followerId;
     private Long followingId;
 
+    // 解码（二进制 / JSON）时使用
+    @ConstructorProperties({"followerId", "followingId", "timestamp"})
+    public FollowEvent(Long followerId, Long followingId, LocalDateTime timestamp) {
+        super(timestamp);
+        this.followerId = followerId;
+        this.followingId = followingId;
+    }
+
+    @Override
+    public Long getTargetUserId() {
+        return followingId;
+    }
+
     @Override
     public EventType getType() {
         return EventType.FOLLOW;
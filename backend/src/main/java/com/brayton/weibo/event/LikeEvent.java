@@ -3,6 +3,9 @@ package com.brayton.weibo.event;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.beans.ConstructorProperties;
+import java.time.LocalDateTime;
+
 @Getter
 @AllArgsConstructor
 public class LikeEvent extends Event {
@@ -10,6 +13,20 @@ public class LikeEvent extends Event {
     private Long toUserId;
     private Long postId;
 
+    // 解码（二进制 / JSON）时使用
+    @ConstructorProperties({"fromUserId", "toUserId", "postId", "timestamp"})
+    public LikeEvent(Long fromUserId, Long toUserId, Long postId, LocalDateTime timestamp) {
+        super(timestamp);
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+        this.postId = postId;
+    }
+
+    @Override
+    public Long getTargetUserId() {
+        return toUserId;
+    }
+
     @Override
     public EventType getType() {
         return EventType.LIKE;
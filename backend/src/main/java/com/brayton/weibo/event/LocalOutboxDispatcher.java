@@ -0,0 +1,35 @@
+package com.brayton.weibo.event;
+
+import com.brayton.weibo.entity.OutboxMessage;
+import com.brayton.weibo.service.NotificationService;
+import com.brayton.weibo.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 不经过 RabbitMQ，直接在本进程里交给 NotificationService 处理（outbox.dispatcher=local），
+ * 用于测试 / 本地开发；此时可以用 spring.rabbitmq.listener.simple.auto-startup=false 关掉监听。
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "outbox.dispatcher", havingValue = "local")
+public class LocalOutboxDispatcher implements OutboxDispatcher {
+
+    private final OutboxService outboxService;
+    private final NotificationService notificationService;
+
+    @Override
+    public void dispatch(List<OutboxMessage> batch) {
+        for (OutboxMessage row : batch) {
+            switch (outboxService.toEvent(row)) {
+                case FollowEvent e -> notificationService.onMessage(e);
+                case LikeEvent e -> notificationService.onMessage(e);
+                case CommentEvent e -> notificationService.onMessage(e);
+                default -> throw new IllegalStateException("unknown outbox event: " + row.getTypeId());
+            }
+        }
+    }
+}
@@ -1,37 +1,22 @@
 package com.brayton.weibo.event;
 
-import com.brayton.weibo.config.RabbitConfig;
-import com.brayton.weibo.entity.Notification;
-import com.brayton.weibo.service.NotificationService;
+import com.brayton.weibo.service.OutboxService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+/**
+ * 通知事件写入 outbox：同步监听，和点赞 / 评论 / 关注在同一事务里提交或回滚，
+ * 由 OutboxRelayService 异步投递到 RabbitMQ，请求线程不再等 broker。
+ */
 @Component
 @RequiredArgsConstructor
 public class NotificationListener {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
 
     @EventListener
     public void dispatch(Event e) {
-        switch (e.getType()) {
-            case LIKE -> handleLike((LikeEvent) e);
-            case COMMENT -> handleComment((CommentEvent) e);
-            case FOLLOW -> handleFollow((FollowEvent) e);
-        }
-    }
-
-    private void handleFollow(FollowEvent e) {
-        rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE, "notification.follow", e);
-    }
-
-    private void handleLike(LikeEvent e) {
-        rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE, "notification.like", e);
-    }
-
-    private void handleComment(CommentEvent e) {
-        rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE, "notification.comment", e);
+        outboxService.append(e);
     }
 }
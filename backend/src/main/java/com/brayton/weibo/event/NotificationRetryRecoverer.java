@@ -0,0 +1,84 @@
+package com.brayton.weibo.event;
+
+import com.brayton.weibo.common.WeiboMetrics;
+import com.brayton.weibo.config.NotificationTopology;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+/**
+ * 通知消费失败后的去向：还有重试次数就发到对应级别的延迟队列，
+ * 用完或消息本身无法解码则进 DLQ，附上原队列和异常信息供 NotificationDlqService 重放。
+ */
+@Component
+public class NotificationRetryRecoverer implements MessageRecoverer {
+
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    public static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+    public static final String EXCEPTION_HEADER = "x-exception";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final NotificationTopology topology;
+    private final WeiboMetrics metrics;
+
+    public NotificationRetryRecoverer(RabbitTemplate rabbitTemplate,
+                                      NotificationTopology topology,
+                                      WeiboMetrics metrics) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.topology = topology;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void recover(Message message, Throwable cause) {
+        try {
+            route(message, cause);
+        } catch (AmqpException e) {
+            // 转发失败（broker 不可用）时放回原队列，不能丢
+            throw new ImmediateRequeueAmqpException("failed to route failed notification", e);
+        }
+    }
+
+    private void route(Message message, Throwable cause) {
+        MessageProperties props = message.getMessageProperties();
+        String queue = props.getHeader(ORIGINAL_QUEUE_HEADER);
+        if (queue == null) {
+            queue = props.getConsumerQueue();
+            props.setHeader(ORIGINAL_QUEUE_HEADER, queue);
+        }
+
+        Integer retries = props.getHeader(RETRY_COUNT_HEADER);
+        int attempt = retries == null ? 0 : retries;
+        if (attempt < topology.getRetryDelaysMs().length && !isPoison(cause)) {
+            props.setHeader(RETRY_COUNT_HEADER, attempt + 1);
+            // routing key 是原队列名，死信回默认交换机时据此回到原队列
+            rabbitTemplate.send(topology.retryExchange(attempt), queue, message);
+            metrics.notificationRetry();
+            return;
+        }
+
+        props.setHeader(EXCEPTION_HEADER, describe(cause));
+        rabbitTemplate.send("", NotificationTopology.DEAD_LETTER_QUEUE, message);
+        metrics.notificationDeadLetter();
+    }
+
+    // 解码失败重试也没用
+    private static boolean isPoison(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof MessageConversionException) return true;
+        }
+        return false;
+    }
+
+    private static String describe(Throwable cause) {
+        Throwable root = cause;
+        while (root.getCause() != null) root = root.getCause();
+        String text = root.getClass().getName() + ": " + root.getMessage();
+        return text.length() > 500 ? text.substring(0, 500) : text;
+    }
+}
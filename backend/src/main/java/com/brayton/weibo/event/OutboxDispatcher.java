@@ -0,0 +1,13 @@
+package com.brayton.weibo.event;
+
+import com.brayton.weibo.entity.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * outbox 一批消息的投递方式；返回即视为投递成功，抛异常则整批留在 outbox 里下次重试
+ */
+public interface OutboxDispatcher {
+
+    void dispatch(List<OutboxMessage> batch);
+}
@@ -0,0 +1,42 @@
+package com.brayton.weibo.event;
+
+import com.brayton.weibo.config.RabbitConfig;
+import com.brayton.weibo.entity.OutboxMessage;
+import com.brayton.weibo.service.OutboxService;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 在同一个 channel 上发出整批消息，再等 broker 的 publisher confirm（需要 publisher-confirm-type=simple）
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.dispatcher", havingValue = "rabbit", matchIfMissing = true)
+public class RabbitOutboxDispatcher implements OutboxDispatcher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
+    private final long confirmTimeoutMs;
+
+    public RabbitOutboxDispatcher(RabbitTemplate rabbitTemplate,
+                                  OutboxService outboxService,
+                                  @Value("${outbox.relay.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.outboxService = outboxService;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Override
+    public void dispatch(List<OutboxMessage> batch) {
+        rabbitTemplate.invoke(ops -> {
+            for (OutboxMessage row : batch) {
+                ops.send(RabbitConfig.EXCHANGE, row.getRoutingKey(), outboxService.toMessage(row));
+            }
+            ops.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+    }
+}
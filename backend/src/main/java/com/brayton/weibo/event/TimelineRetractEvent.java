@@ -0,0 +1,39 @@
+package com.brayton.weibo.event;
+
+import com.brayton.weibo.enums.PostVisibility;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 时间线收回：取关、删帖、可见性变化后，异步从 feed:* 中移除不再可见的条目
+ */
+@Getter
+@AllArgsConstructor
+public class TimelineRetractEvent {
+
+    public enum Reason {
+        UNFOLLOW,
+        POST_DELETED,
+        VISIBILITY_CHANGED,
+    }
+
+    private final Reason reason;
+    private final Long userId;          // UNFOLLOW: 取关者；其他：帖子作者
+    private final Long targetId;        // UNFOLLOW: 被取关者；其他：帖子 ID
+    private final PostVisibility oldVisibility;
+    private final PostVisibility newVisibility;
+    private final boolean wereFriends;  // UNFOLLOW 前是否互关
+
+    public static TimelineRetractEvent unfollow(Long followerId, Long followingId, boolean wereFriends) {
+        return new TimelineRetractEvent(Reason.UNFOLLOW, followerId, followingId, null, null, wereFriends);
+    }
+
+    public static TimelineRetractEvent postDeleted(Long authorId, Long postId, PostVisibility visibility) {
+        return new TimelineRetractEvent(Reason.POST_DELETED, authorId, postId, visibility, null, false);
+    }
+
+    public static TimelineRetractEvent visibilityChanged(Long authorId, Long postId,
+                                                         PostVisibility oldVisibility, PostVisibility newVisibility) {
+        return new TimelineRetractEvent(Reason.VISIBILITY_CHANGED, authorId, postId, oldVisibility, newVisibility, false);
+    }
+}
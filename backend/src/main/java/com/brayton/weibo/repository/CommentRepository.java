@@ -1,14 +1,40 @@
 package com.brayton.weibo.repository;
 
 import com.brayton.weibo.entity.Comment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
-    // 查询某个帖子下的所有评论（按时间排序）
-    List<Comment> findByPostIdOrderByCreatedAtDesc(Long postId);
+    // 某个帖子下的评论，按 id 倒序 keyset 分页；作者资料走用户缓存，这里不 join
+    @Query("""
+        select c
+        from Comment c
+        where c.post.id = :postId and c.id < :cursor
+        order by c.id desc
+    """)
+    List<Comment> findPage(
+            @Param("postId") Long postId,
+            @Param("cursor") Long cursor,
+            Pageable pageable
+    );
 
-    void deleteAllByPostId(Long postId);
+    // 删帖清理：每次最多删 limit 条，各自一个短事务
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "comments"))
+    @Query(value = """
+        DELETE FROM comments
+        WHERE id IN (SELECT id FROM comments WHERE post_id = :postId LIMIT :limit)
+    """, nativeQuery = true)
+    int deleteBatchByPostId(@Param("postId") Long postId, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -27,26 +27,16 @@ public interface FollowRepository extends JpaRepository<FollowRelation, Long> {
     """)
     Set<Long> findFollowingIds(Long userId);
 
+    // 关注列表分页，cursor 为上一页最后一条关系的 id
     @Query("""
-        SELECT f.followingId
+        SELECT f
         FROM FollowRelation f
-        WHERE f.followerId = :userId
+        WHERE f.followerId = :userId AND f.id < :cursor
         ORDER BY f.id DESC
     """)
-    List<Long> findFollowingIds(
+    List<FollowRelation> findFollowingRelations(
             @Param("userId") Long userId,
-            Pageable pageable
-    );
-
-    @Query("""
-        SELECT f.followingId
-        FROM FollowRelation f
-        WHERE f.followerId = :userId AND f.id < :lastId
-        ORDER BY f.id DESC
-    """)
-    List<Long> findFollowingIds(
-            @Param("userId") Long userId,
-            @Param("lastId") Long lastId,
+            @Param("cursor") Long cursor,
             Pageable pageable
     );
 
@@ -58,26 +48,16 @@ public interface FollowRepository extends JpaRepository<FollowRelation, Long> {
     """)
     Set<Long> findFollowerIds(Long userId);
 
+    // 粉丝列表分页，cursor 为上一页最后一条关系的 id
     @Query("""
-        SELECT f.followerId
-        FROM FollowRelation f
-        WHERE f.followingId = :userId
-        ORDER BY f.id DESC
-    """)
-    List<Long> findFollowerIds(
-            @Param("userId") Long userId,
-            Pageable pageable
-    );
-
-    @Query("""
-        SELECT f.followerId
+        SELECT f
         FROM FollowRelation f
-        WHERE f.followingId = :userId AND f.id < :lastId
+        WHERE f.followingId = :userId AND f.id < :cursor
         ORDER BY f.id DESC
     """)
-    List<Long> findFollowerIds(
+    List<FollowRelation> findFollowerRelations(
             @Param("userId") Long userId,
-            @Param("lastId") Long lastId,
+            @Param("cursor") Long cursor,
             Pageable pageable
     );
 
@@ -105,6 +85,14 @@ public interface FollowRepository extends JpaRepository<FollowRelation, Long> {
 """)
     int findFriendCountIds(Long userId);
 
+    // 两人之间的关注关系一次查出：返回每条关系的 followerId
+    @Query("""
+        select f.followerId from FollowRelation f
+        where (f.followerId = :a and f.followingId = :b)
+           or (f.followerId = :b and f.followingId = :a)
+    """)
+    List<Long> findRelationFollowerIds(@Param("a") long a, @Param("b") long b);
+
     @Query("""
         select f.followingId from FollowRelation f
         where f.followerId = :userId and f.followingId in :authorIds
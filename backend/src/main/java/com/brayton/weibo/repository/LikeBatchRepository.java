@@ -0,0 +1,19 @@
+package com.brayton.weibo.repository;
+
+import com.brayton.weibo.common.LikeOp;
+
+import java.util.List;
+
+/**
+ * 点赞缓冲区落库用的多行语句，由 LikeRepository 继承
+ */
+public interface LikeBatchRepository {
+
+    record InsertedLike(long userId, long postId, long authorId) { }
+
+    // 多行 INSERT ... ON CONFLICT DO NOTHING，只返回真正插入的行；已删除 / 不存在的帖子跳过
+    List<InsertedLike> insertLikes(List<LikeOp> likes);
+
+    // 多行 DELETE，每删掉一行返回一个 postId
+    List<Long> deleteLikes(List<LikeOp> unlikes);
+}
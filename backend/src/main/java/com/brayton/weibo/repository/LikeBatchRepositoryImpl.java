@@ -0,0 +1,85 @@
+package com.brayton.weibo.repository;
+
+import com.brayton.weibo.common.LikeOp;
+import com.brayton.weibo.common.TimeUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.Collections;
+import java.util.List;
+
+public class LikeBatchRepositoryImpl implements LikeBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<InsertedLike> insertLikes(List<LikeOp> likes) {
+        if (likes.isEmpty()) return Collections.emptyList();
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < likes.size(); i++) {
+            int p = i * 3;
+            if (i > 0) values.append(", ");
+            values.append("(CAST(?").append(p + 1).append(" AS bigint), CAST(?").append(p + 2)
+                    .append(" AS bigint), CAST(?").append(p + 3).append(" AS timestamp))");
+        }
+
+        Query query = entityManager.createNativeQuery("""
+            WITH v(user_id, post_id, created_at) AS (VALUES %s),
+            ins AS (
+                INSERT INTO likes (user_id, post_id, created_at)
+                SELECT v.user_id, v.post_id, v.created_at FROM v
+                WHERE EXISTS (SELECT 1 FROM posts p WHERE p.id = v.post_id AND p.deleted = false)
+                ON CONFLICT (user_id, post_id) DO NOTHING
+                RETURNING user_id, post_id
+            )
+            SELECT ins.user_id, ins.post_id, p.user_id AS author_id
+            FROM ins JOIN posts p ON p.id = ins.post_id
+        """.formatted(values));
+        for (int i = 0; i < likes.size(); i++) {
+            LikeOp op = likes.get(i);
+            query.setParameter(i * 3 + 1, op.userId());
+            query.setParameter(i * 3 + 2, op.postId());
+            query.setParameter(i * 3 + 3, TimeUtil.fromTs(op.ts()));
+        }
+
+        return ((List<Object[]>) query.getResultList()).stream()
+                .map(row -> new InsertedLike(
+                        ((Number) row[0]).longValue(),
+                        ((Number) row[1]).longValue(),
+                        ((Number) row[2]).longValue()))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> deleteLikes(List<LikeOp> unlikes) {
+        if (unlikes.isEmpty()) return Collections.emptyList();
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < unlikes.size(); i++) {
+            int p = i * 2;
+            if (i > 0) values.append(", ");
+            values.append("(CAST(?").append(p + 1).append(" AS bigint), CAST(?").append(p + 2).append(" AS bigint))");
+        }
+
+        Query query = entityManager.createNativeQuery("""
+            DELETE FROM likes l
+            USING (VALUES %s) AS v(user_id, post_id)
+            WHERE l.user_id = v.user_id AND l.post_id = v.post_id
+            RETURNING l.post_id
+        """.formatted(values));
+        for (int i = 0; i < unlikes.size(); i++) {
+            LikeOp op = unlikes.get(i);
+            query.setParameter(i * 2 + 1, op.userId());
+            query.setParameter(i * 2 + 2, op.postId());
+        }
+
+        return ((List<Object>) query.getResultList()).stream()
+                .map(postId -> ((Number) postId).longValue())
+                .toList();
+    }
+}
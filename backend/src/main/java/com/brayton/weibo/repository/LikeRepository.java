@@ -3,19 +3,25 @@ package com.brayton.weibo.repository;
 import com.brayton.weibo.entity.Like;
 import com.brayton.weibo.entity.Post;
 import com.brayton.weibo.enums.PostVisibility;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 @Repository
-public interface LikeRepository extends JpaRepository<Like, Long> {
+public interface LikeRepository extends JpaRepository<Like, Long>, LikeBatchRepository {
 
     @Query("""
     select l.postId from Like l
@@ -32,11 +38,52 @@ public interface LikeRepository extends JpaRepository<Like, Long> {
     // 统计帖子点赞数
     Long countByPostId(Long postId);
 
-    // 删除点赞（用于取消点赞）
-    void deleteByUserIdAndPostId(Long userId, Long postId);
+    /*
+     * 点赞 / 取消点赞：一条语句完成写记录 + 改计数，只有记录真的变了计数才变，
+     * 重复点击不会撞唯一约束
+     */
+
+    // 返回帖子作者 ID；已点过赞或帖子不存在时为空
+    @Transactional
+    @Query(value = """
+        WITH ins AS (
+            INSERT INTO likes (user_id, post_id, created_at)
+            SELECT :userId, p.id, :createdAt FROM posts p
+            WHERE p.id = :postId AND p.deleted = false
+            ON CONFLICT (user_id, post_id) DO NOTHING
+            RETURNING post_id
+        )
+        UPDATE posts SET like_count = like_count + 1
+        WHERE id IN (SELECT post_id FROM ins)
+        RETURNING user_id
+    """, nativeQuery = true)
+    Optional<Long> insertLike(@Param("userId") Long userId,
+                              @Param("postId") Long postId,
+                              @Param("createdAt") LocalDateTime createdAt);
+
+    // 返回 1 表示确实取消了，0 表示本来就没点赞
+    // QueryHints 声明写到的表，Hibernate 执行前只需 flush 涉及这些表的待写实体
+    @Modifying
+    @Transactional
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "likes"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "posts")
+    })
+    @Query(value = """
+        WITH del AS (
+            DELETE FROM likes
+            WHERE user_id = :userId AND post_id = :postId
+            RETURNING post_id
+        )
+        UPDATE posts SET like_count = GREATEST(like_count - 1, 0)
+        WHERE id IN (SELECT post_id FROM del)
+    """, nativeQuery = true)
+    int deleteLike(@Param("userId") Long userId, @Param("postId") Long postId);
 
     // 获取某帖子的所有点赞记录（如果你要做“谁点了赞”）
     List<Like> findAllByPostIdOrderByCreatedAtDesc(Long postId);
 
-    void deleteAllByPostId(Long postId); // 删除某个帖子的所有点赞
+    // 删帖清理：按 id 分批取出，userId 用来清 liked:{userId}，再按 id 批量删除
+    @Query("select l from Like l where l.postId = :postId order by l.id")
+    List<Like> findPurgeBatch(@Param("postId") Long postId, Pageable pageable);
 }
\ No newline at end of file
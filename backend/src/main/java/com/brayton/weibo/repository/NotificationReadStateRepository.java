@@ -0,0 +1,54 @@
+package com.brayton.weibo.repository;
+
+import com.brayton.weibo.entity.NotificationReadState;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface NotificationReadStateRepository extends JpaRepository<NotificationReadState, NotificationReadState.Key> {
+
+    @Query(value = """
+        SELECT last_read_id FROM notification_read_state
+        WHERE user_id = :userId AND type = :type
+    """, nativeQuery = true)
+    Optional<Long> findLastReadId(@Param("userId") Long userId, @Param("type") String type);
+
+    // 全部已读：水位推到当前最新一条通知，只增不减；max(id) 走 (target_id, type, id) 索引。
+    // 依赖同一个 target 的通知按 id 顺序提交：id 是插入时分配的，若 id 小的那行还没提交、
+    // id 大的已经可见，max(id) 会越过它，它提交后直接算作已读。这由通知消费端保证——
+    // 同一用户的事件按 userId 分片进同一个队列，队列是 single-active-consumer，
+    // 全集群只有一个消费者串行写入（见 RabbitConfig）。改动分片或并发度前先看这里
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "notification_read_state"))
+    @Query(value = """
+        INSERT INTO notification_read_state (user_id, type, last_read_id)
+        SELECT :userId, :type, COALESCE(max(n.id), 0)
+        FROM notifications n
+        WHERE n.target_id = :userId AND n.type = :type
+        ON CONFLICT (user_id, type)
+        DO UPDATE SET last_read_id = GREATEST(notification_read_state.last_read_id, EXCLUDED.last_read_id)
+    """, nativeQuery = true)
+    void markAllRead(@Param("userId") Long userId, @Param("type") String type);
+
+    // 各类型未读数：水位之后、且旧 read 列没标已读的通知条数，一次查出；返回 [type, count]。
+    // 已读判定与 NotificationService.getNotifications、archiveReadBefore 一致：read = true 或 id <= 水位
+    @Query(value = """
+        SELECT n.type, count(*)
+        FROM notifications n
+        LEFT JOIN notification_read_state s
+            ON s.user_id = n.target_id AND s.type = n.type
+        WHERE n.target_id = :userId AND n.id > COALESCE(s.last_read_id, 0)
+        AND n.read IS NOT TRUE
+        GROUP BY n.type
+    """, nativeQuery = true)
+    List<Object[]> countUnreadByType(@Param("userId") Long userId);
+}
@@ -2,13 +2,18 @@ package com.brayton.weibo.repository;
 
 import com.brayton.weibo.entity.Notification;
 import com.brayton.weibo.event.EventType;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,7 +22,7 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Query("""
         SELECT n FROM Notification n
         WHERE n.targetId = :userId AND n.type = :type
-        ORDER BY n.createdAt DESC
+        ORDER BY n.id DESC
     """)
     List<Notification> getNotifications(
             @Param("userId") Long userId,
@@ -28,7 +33,7 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Query("""
         SELECT n FROM Notification n
         WHERE n.targetId = :userId AND n.type = :type AND n.id < :lastId
-        ORDER BY n.createdAt DESC
+        ORDER BY n.id DESC
     """)
     List<Notification> getNotifications(
             @Param("userId") Long userId,
@@ -37,15 +42,41 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
             Pageable pageable
     );
 
-    int countByTargetIdAndReadFalseAndType(Long targetId, EventType type); // 顶部小红点（未读计数）
 
+    // 保留期外的已读通知（水位以下，或旧数据里 read = true）分批搬到 notifications_archive，
+    // created_at 条件只会扫到过期分区
     @Modifying
-    @Query("""
-        UPDATE Notification n SET n.read = true
-        WHERE n.targetId = :targetId
-        AND n.type = :type
-        AND n.read = false
-    """)
-    void markAllRead(@Param("targetId") Long targetId,
-                    @Param("type") EventType type);
+    @Transactional
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "notifications"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "notifications_archive")
+    })
+    @Query(value = """
+        WITH moved AS (
+            DELETE FROM notifications
+            WHERE id IN (
+                SELECT n.id FROM notifications n
+                LEFT JOIN notification_read_state s
+                    ON s.user_id = n.target_id AND s.type = n.type
+                WHERE n.created_at < :cutoff
+                AND (n.read = true OR n.id <= COALESCE(s.last_read_id, 0))
+                LIMIT :limit
+            )
+            AND created_at < :cutoff
+            RETURNING id, actor_id, target_id, type, post_id, content, read, created_at
+        )
+        INSERT INTO notifications_archive (id, actor_id, target_id, type, post_id, content, read, created_at)
+        SELECT id, actor_id, target_id, type, post_id, content, read, created_at FROM moved
+    """, nativeQuery = true)
+    int archiveReadBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    // 删帖清理：每次最多删 limit 条，各自一个短事务
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "notifications"))
+    @Query(value = """
+        DELETE FROM notifications
+        WHERE id IN (SELECT id FROM notifications WHERE post_id = :postId LIMIT :limit)
+    """, nativeQuery = true)
+    int deleteBatchByPostId(@Param("postId") Long postId, @Param("limit") int limit);
 }
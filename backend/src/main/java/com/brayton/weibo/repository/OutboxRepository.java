@@ -0,0 +1,20 @@
+package com.brayton.weibo.repository;
+
+import com.brayton.weibo.entity.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // 多实例同时投递时互不等待，各取各的
+    @Query(value = """
+        SELECT * FROM outbox
+        ORDER BY id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OutboxMessage> lockBatch(@Param("limit") int limit);
+}
@@ -2,10 +2,14 @@ package com.brayton.weibo.repository;
 
 import com.brayton.weibo.entity.Post;
 import com.brayton.weibo.enums.PostVisibility;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
@@ -22,6 +26,16 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     """)
     List<Post> findByIdInWithUser(@Param("ids") Collection<Long> ids);
 
+    // 连同作者、被转发帖及其作者一起取回，转发不再额外触发懒加载
+    @Query("""
+        select p from Post p
+        join fetch p.user
+        left join fetch p.refPost r
+        left join fetch r.user
+        where p.id in :ids
+    """)
+    List<Post> findByIdInWithRefGraph(@Param("ids") Collection<Long> ids);
+
     int countPostsByUserId(long userId);
 
     @Query("""
@@ -38,6 +52,18 @@ public interface PostRepository extends JpaRepository<Post, Long> {
             Pageable pageable
     );
 
+    @Query("""
+    SELECT p.id FROM Post p
+    WHERE p.user.id = :userId
+      AND p.visibility IN :visibilities
+    ORDER BY p.id DESC
+    """)
+    List<Long> findPostIds(
+            @Param("userId") Long userId,
+            @Param("visibilities") List<PostVisibility> visibilities,
+            Pageable pageable
+    );
+
     @Query(value = """
     SELECT *
     FROM posts
@@ -66,6 +92,10 @@ public interface PostRepository extends JpaRepository<Post, Long> {
 
     List<Post> findByIdIn(List<Long> postIds);
 
+    // 未删除的那部分 id（@Where 过滤软删）
+    @Query("SELECT p.id FROM Post p WHERE p.id IN :postIds")
+    Set<Long> findExistingIds(@Param("postIds") Collection<Long> postIds);
+
     List<Post> findByIdIn(Set<Object> postIds);
 
     List<Post> findByIdInOrderByCreatedAtDesc(Set<Object> postIds);
@@ -78,6 +108,11 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Query("UPDATE Post p SET p.likeCount = CASE WHEN p.likeCount > 0 THEN p.likeCount - 1 ELSE 0 END WHERE p.id = :postId")
     void decrementLikeCount(@Param("postId") Long postId);
 
+    // 点赞缓冲区落库：每个帖子一条聚合更新
+    @Modifying
+    @Query("UPDATE Post p SET p.likeCount = CASE WHEN p.likeCount + :delta > 0 THEN p.likeCount + :delta ELSE 0 END WHERE p.id = :postId")
+    void addLikeCount(@Param("postId") Long postId, @Param("delta") long delta);
+
     @Modifying
     @Query("UPDATE Post p SET p.commentCount = p.commentCount + 1 WHERE p.id = :postId")
     void incrementCommentCount(@Param("postId") Long postId);
@@ -93,4 +128,19 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Modifying
     @Query("UPDATE Post p SET p.repostCount = CASE WHEN p.repostCount > 0 THEN p.repostCount - 1 ELSE 0 END WHERE p.id = :postId")
     void decrementRepostCount(@Param("postId") Long postId);
+
+    // 已软删、还没清理关联数据的帖子（绕过 @Where）
+    @Query(value = """
+        SELECT id FROM posts
+        WHERE deleted = true AND purged = false
+        ORDER BY id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Long> findUnpurgedDeletedIds(@Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "posts"))
+    @Query(value = "UPDATE posts SET purged = true WHERE id = :postId", nativeQuery = true)
+    void markPurged(@Param("postId") Long postId);
 }
@@ -1,10 +1,14 @@
 package com.brayton.weibo.repository;
 
 import com.brayton.weibo.entity.User;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
@@ -17,9 +21,56 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("""
         select u
         from User u
-        order by u.followerCount desc
+        where u.id > :lastId
+        order by u.id asc
     """)
-    List<User> getAllUsers();
+    List<User> findPageAfter(@Param("lastId") long lastId, Pageable pageable);
+
+    @Query("""
+        select u.id
+        from User u
+        where u.id > :lastId
+        order by u.id asc
+    """)
+    List<Long> findIdsAfter(@Param("lastId") long lastId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.postCount = u.postCount + 1 WHERE u.id = :id")
+    void incrementPostCountById(@Param("id") long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.postCount = u.postCount - 1 WHERE u.id = :id")
+    void decrementPostCountById(@Param("id") long id);
+
+    // 关注 / 取关前按 id 顺序锁住两个用户行：同一对用户的互相关注串行执行，
+    // 反向关系的检查和 friendCount 的增减不会交错；固定加锁顺序也避免死锁
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"))
+    @Query(value = "SELECT id FROM users WHERE id IN (:a, :b) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockPair(@Param("a") long a, @Param("b") long b);
+
+    // 互关建立 / 解除时两边同时更新
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.friendCount = u.friendCount + :delta WHERE u.id IN (:a, :b)")
+    void addFriendCountByIds(@Param("a") long a, @Param("b") long b, @Param("delta") int delta);
+
+    // 一次性回填 post_count / friend_count（加列后或计数漂移时）
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"))
+    @Query(value = """
+        UPDATE users u SET
+            post_count = (SELECT COUNT(*) FROM posts p WHERE p.user_id = u.id AND p.deleted = false),
+            friend_count = (
+                SELECT COUNT(*) FROM follows f
+                WHERE f.follower_id = u.id
+                  AND EXISTS (SELECT 1 FROM follows f2
+                              WHERE f2.follower_id = f.following_id AND f2.following_id = u.id)
+            )
+    """, nativeQuery = true)
+    int recountPostAndFriendCounts();
 
     @Modifying
     @Transactional
@@ -1,8 +1,12 @@
 package com.brayton.weibo.service;
 
+import com.brayton.weibo.common.AfterCommit;
+import com.brayton.weibo.common.CachedComment;
+import com.brayton.weibo.common.TimeUtil;
+import com.brayton.weibo.dto.CommentPageResponse;
 import com.brayton.weibo.dto.CommentResponse;
-import com.brayton.weibo.dto.PostResponse;
 import com.brayton.weibo.dto.UserResponse;
+import com.brayton.weibo.dto.UserSummary;
 import com.brayton.weibo.entity.Comment;
 import com.brayton.weibo.entity.Post;
 import com.brayton.weibo.entity.User;
@@ -14,42 +18,107 @@ import com.brayton.weibo.repository.FollowRepository;
 import com.brayton.weibo.repository.PostRepository;
 import com.brayton.weibo.repository.UserRepository;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 评论。热门帖子的评论首页走 Redis 列表 comments:{postId}（最新 N 条），
+ * 发评论时写穿，删评论时失效；作者资料和关注关系每次读时批量补。
+ */
 @Service
-@RequiredArgsConstructor
 public class CommentService {
 
     private final CommentRepository commentRepository;
     private final FollowRepository followRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final UserProfileService userProfileService;
+    private final RedisService redisService;
     private final ApplicationEventPublisher publisher;
 
-    private CommentResponse buildCommentResponse(Comment comment, Long currentUserId) {
+    // 缓存的最新评论条数，首页 size 超过它时直接查库
+    private final int cacheSize;
+    private final Duration cacheTtl;
+
+    public CommentService(CommentRepository commentRepository,
+                          FollowRepository followRepository,
+                          PostRepository postRepository,
+                          UserRepository userRepository,
+                          UserProfileService userProfileService,
+                          RedisService redisService,
+                          ApplicationEventPublisher publisher,
+                          @Value("${comment.cache.size:50}") int cacheSize,
+                          @Value("${comment.cache.ttl-seconds:600}") long cacheTtlSeconds) {
+        this.commentRepository = commentRepository;
+        this.followRepository = followRepository;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.userProfileService = userProfileService;
+        this.redisService = redisService;
+        this.publisher = publisher;
+        this.cacheSize = cacheSize;
+        this.cacheTtl = Duration.ofSeconds(cacheTtlSeconds);
+    }
 
-        boolean following = followRepository.existsByFollowerIdAndFollowingId(currentUserId, comment.getUser().getId());
-        boolean followed = followRepository.existsByFollowerIdAndFollowingId(comment.getUser().getId(), currentUserId);
+    public CommentPageResponse getCommentsByPostId(long postId, long uid, Long cursor, int size) {
 
-        return CommentResponse.builder()
-                .createdAt(comment.getCreatedAt())
-                .content(comment.getContent())
-                .id(comment.getId())
-                // Don't care friendCount and postCount
-                .user(new UserResponse(comment.getUser(), following, followed, 0, 0))
-                .build();
+        List<CachedComment> comments = cursor == null && size <= cacheSize
+                ? firstPage(postId, size)
+                : loadPage(postId, cursor == null ? Long.MAX_VALUE : cursor, size);
+        if (comments.isEmpty()) return new CommentPageResponse(Collections.emptyList(), null);
+
+        Long nextCursor = comments.size() < size ? null : comments.getLast().id();
+        return new CommentPageResponse(toResponses(comments, uid), nextCursor);
+    }
+
+    // 先读缓存；未命中时从库里取最新 N 条回填，再截出本页。
+    // 查库前记下写版本，期间有评论提交（版本变了）就不回填，留给下一次读
+    private List<CachedComment> firstPage(long postId, int size) {
+        List<CachedComment> cached = redisService.getCachedComments(postId, size);
+        if (!cached.isEmpty()) return cached;
+
+        String version = redisService.getCommentsVersion(postId);
+        List<CachedComment> newest = loadPage(postId, Long.MAX_VALUE, cacheSize);
+        redisService.cacheComments(postId, newest, cacheTtl, version);
+        return newest.size() > size ? newest.subList(0, size) : newest;
+    }
+
+    private List<CachedComment> loadPage(long postId, long cursor, int size) {
+        return commentRepository.findPage(postId, cursor, PageRequest.of(0, size)).stream()
+                .map(CachedComment::of)
+                .toList();
     }
 
-    public List<CommentResponse> getCommentsByPostId(long postId, long uid) {
+    // 作者资料走用户缓存，关注关系一次查出
+    private List<CommentResponse> toResponses(List<CachedComment> comments, long uid) {
+        Set<Long> authorIds = comments.stream()
+                .map(CachedComment::authorId)
+                .collect(Collectors.toSet());
+        Map<Long, UserSummary> authors = userProfileService.getSummaries(authorIds);
+        Set<Long> followingIds = followRepository.findFollowingIds(uid, authorIds);
+        Set<Long> followedByIds = followRepository.findFollowedByIds(uid, authorIds);
 
-        List<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtDesc(postId);
         return comments.stream()
-                .map(comment -> buildCommentResponse(comment, uid))
+                .filter(comment -> authors.containsKey(comment.authorId()))
+                .map(comment -> {
+                    Long authorId = comment.authorId();
+                    return CommentResponse.builder()
+                            .id(comment.id())
+                            .content(comment.content())
+                            .createdAt(TimeUtil.fromTs(comment.createdAt()))
+                            .user(new UserResponse(authors.get(authorId),
+                                    followingIds.contains(authorId), followedByIds.contains(authorId)))
+                            .build();
+                })
                 .toList();
     }
 
@@ -71,6 +140,10 @@ public class CommentService {
         commentRepository.save(comment);
         postRepository.incrementCommentCount(postId);
 
+        // 只更新已缓存的列表，未缓存的等下次读时整体回填
+        CachedComment cached = CachedComment.of(comment);
+        AfterCommit.run(() -> redisService.prependCachedComment(postId, cached, cacheSize));
+
         if (!userId.equals(post.getUser().getId())) {
             publisher.publishEvent(new CommentEvent(userId, post.getUser().getId(), postId, content));
         }
@@ -86,7 +159,11 @@ public class CommentService {
             throw new WeiboException(CommonErrorCode.COMMENT_CANT_DELETE);
         }
 
+        Long postId = comment.getPost().getId();
         commentRepository.deleteById(commentId);
-        postRepository.decrementCommentCount(comment.getPost().getId());
+        postRepository.decrementCommentCount(postId);
+
+        // 删除可能落在缓存中间，直接失效，下次读时重建
+        AfterCommit.run(() -> redisService.evictCachedComments(postId));
     }
 }
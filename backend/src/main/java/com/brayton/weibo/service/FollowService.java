@@ -1,14 +1,18 @@
 package com.brayton.weibo.service;
 
 import com.brayton.weibo.common.TimeUtil;
+import com.brayton.weibo.dto.UserPageResponse;
 import com.brayton.weibo.dto.UserResponse;
+import com.brayton.weibo.dto.UserSummary;
 import com.brayton.weibo.entity.FollowRelation;
 import com.brayton.weibo.entity.Post;
 import com.brayton.weibo.entity.User;
+import com.brayton.weibo.enums.PostVisibility;
 import com.brayton.weibo.error.CommonErrorCode;
 import com.brayton.weibo.error.ErrorCode;
 import com.brayton.weibo.error.WeiboException;
 import com.brayton.weibo.event.FollowEvent;
+import com.brayton.weibo.event.TimelineRetractEvent;
 import com.brayton.weibo.repository.FollowRepository;
 import com.brayton.weibo.repository.PostRepository;
 import com.brayton.weibo.repository.UserRepository;
@@ -20,9 +24,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -31,7 +34,8 @@ public class FollowService {
     private final FollowRepository followRepository;
     private final UserRepository userRepository;
     private final PostRepository postRepository;
-    private final UserService userService;
+    private final UserProfileService userProfileService;
+    private final UserLeaderboardService userLeaderboardService;
     private final RedisService redisService;
     private final ApplicationEventPublisher publisher;
 
@@ -45,10 +49,27 @@ public class FollowService {
                 Long.MAX_VALUE,
                 PageRequest.of(0, 20)
         );
+
+        Map<Long, Long> feedEntries = new HashMap<>();
+        Map<Long, Long> friendEntries = new HashMap<>();
         for (Post post : posts) {
-            redisService.addToFeed(followerId, post.getId(), TimeUtil.toTs(post.getCreatedAt()));
+            Map<Long, Long> target = post.getVisibility() == PostVisibility.FRIENDS ? friendEntries : feedEntries;
+            target.put(post.getId(), TimeUtil.toTs(post.getCreatedAt()));
+        }
+        // 写入时按保留策略裁剪
+        redisService.addAllToFeed(followerId, feedEntries, friendEntries);
+
+        // 回关成为好友：对方也能看到我的 FRIENDS 帖子
+        if (followed) {
+            Map<Long, Long> reverseFriendEntries = new HashMap<>();
+            postRepository.findNewestPosts(
+                    Set.of(followerId),
+                    List.of(PostVisibility.FRIENDS),
+                    Long.MAX_VALUE,
+                    PageRequest.of(0, 20)
+            ).forEach(post -> reverseFriendEntries.put(post.getId(), TimeUtil.toTs(post.getCreatedAt())));
+            redisService.addAllToFeed(followingId, Collections.emptyMap(), reverseFriendEntries);
         }
-        redisService.trimFeed(followerId, 1000);
     }
 
     @Transactional
@@ -57,12 +78,21 @@ public class FollowService {
         if (followerId == followingId) {
             throw new WeiboException(CommonErrorCode.FOLLOW_YOURSELF);
         }
+        // 先锁住这对用户，再看反向关系（READ COMMITTED 下每条语句都读到对方已提交的关注）
+        userRepository.lockPair(followerId, followingId);
         if (followRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
             throw new WeiboException(CommonErrorCode.FOLLOWING_ID_ALREADY_EXISTS);
         }
+        boolean becomesFriends = followRepository.existsByFollowerIdAndFollowingId(followingId, followerId);
+
         followRepository.save(new FollowRelation(followerId, followingId));
         userRepository.incrementFollowerCountById(followingId);
+        userLeaderboardService.onFollowerCountChanged(followingId, 1);
         userRepository.incrementFollowCountById(followerId);
+        if (becomesFriends) {
+            userRepository.addFriendCountByIds(followerId, followingId, 1);
+        }
+        userProfileService.evict(followerId, followingId);
 
         publisher.publishEvent(new FollowEvent(followerId, followingId));
 
@@ -72,67 +102,74 @@ public class FollowService {
 
     @Transactional
     public void unfollow(long followerId, long followingId) {
+        userRepository.lockPair(followerId, followingId);
         if (!followRepository.existsByFollowerIdAndFollowingId(followerId, followingId)) {
             throw new WeiboException(CommonErrorCode.FOLLOWING_ID_NOT_EXISTS);
         }
+        boolean wereFriends = followRepository.existsByFollowerIdAndFollowingId(followingId, followerId);
+
         followRepository.deleteByFollowerIdAndFollowingId(followerId, followingId);
         userRepository.decrementFollowerCountById(followingId);
+        userLeaderboardService.onFollowerCountChanged(followingId, -1);
         userRepository.decrementFollowCountById(followerId);
+        if (wereFriends) {
+            userRepository.addFriendCountByIds(followerId, followingId, -1);
+        }
+        userProfileService.evict(followerId, followingId);
+
+        // 提交后由后台线程收回时间线里不再可见的条目
+        publisher.publishEvent(TimelineRetractEvent.unfollow(followerId, followingId, wereFriends));
     }
 
-    public List<UserResponse> getFollowers(Long id, Long lastId, int size) {
+    public UserPageResponse getFollowers(Long id, Long cursor, int size) {
 
-        if (!userRepository.existsById(id)) {
+        List<FollowRelation> relations = followRepository.findFollowerRelations(
+                id, cursor == null ? Long.MAX_VALUE : cursor, PageRequest.of(0, size));
+        // 只有空页时才需要区分“没有粉丝”和“用户不存在”
+        if (relations.isEmpty() && !userRepository.existsById(id)) {
             throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
         }
 
-        if (lastId == null) {
-            return followRepository.findFollowerIds(id, PageRequest.of(0, size))
-                    .stream()
-                    .map(userService::getUserInfoById)
-                    .toList();
-        }
-
-        FollowRelation relation = followRepository.findByFollowerIdAndFollowingId(lastId, id)
-                .orElseThrow(() -> new WeiboException(CommonErrorCode.FOLLOWING_ID_NOT_EXISTS));
-
-        return followRepository.findFollowerIds(id, relation.getId(), PageRequest.of(0, size))
-                .stream()
-                .map(userService::getUserInfoById)
-                .toList();
+        return toUserPage(relations, size, FollowRelation::getFollowerId);
     }
 
-    public List<UserResponse> getFollowings(Long id, Long lastId, int size) {
+    public UserPageResponse getFollowings(Long id, Long cursor, int size) {
 
-        if (!userRepository.existsById(id)) {
+        List<FollowRelation> relations = followRepository.findFollowingRelations(
+                id, cursor == null ? Long.MAX_VALUE : cursor, PageRequest.of(0, size));
+        if (relations.isEmpty() && !userRepository.existsById(id)) {
             throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
         }
 
-        if (lastId == null) {
-            return followRepository.findFollowingIds(id, PageRequest.of(0, size))
-                    .stream()
-                    .map(userService::getUserInfoById)
-                    .toList();
-        }
-
-        FollowRelation relation = followRepository.findByFollowerIdAndFollowingId(id, lastId)
-                .orElseThrow(() -> new WeiboException(CommonErrorCode.FOLLOWING_ID_NOT_EXISTS));
-
-        return followRepository.findFollowingIds(id, relation.getId(), PageRequest.of(0, size))
-                .stream()
-                .map(userService::getUserInfoById)
-                .toList();
+        return toUserPage(relations, size, FollowRelation::getFollowingId);
     }
 
     public List<UserResponse> getFriends(long id) {
 
-        if (!userRepository.existsById(id)) {
+        Set<Long> friendIds = followRepository.findFriendIds(id);
+        if (friendIds.isEmpty() && !userRepository.existsById(id)) {
             throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
         }
 
-        return followRepository.findFriendIds(id)
-                .stream()
-                .map(userService::getUserInfoById)
+        Map<Long, UserSummary> summaries = userProfileService.getSummaries(friendIds);
+        return friendIds.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .map(summary -> new UserResponse(summary, false, false))
+                .toList();
+    }
+
+    // 关系页 + 一次批量取资料，保持关系顺序
+    private UserPageResponse toUserPage(List<FollowRelation> relations, int size, Function<FollowRelation, Long> userIdOf) {
+        Map<Long, UserSummary> summaries = userProfileService.getSummaries(relations.stream().map(userIdOf).toList());
+
+        List<UserResponse> users = relations.stream()
+                .map(userIdOf)
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .map(summary -> new UserResponse(summary, false, false))
                 .toList();
+        Long nextCursor = relations.size() < size ? null : relations.getLast().getId();
+        return new UserPageResponse(users, nextCursor);
     }
 }
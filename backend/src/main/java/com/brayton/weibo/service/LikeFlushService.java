@@ -0,0 +1,122 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.LikeOp;
+import com.brayton.weibo.common.WeiboMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 点赞缓冲区落库：定时逐个分片取一批，交给 LikeService.applyBuffered 在一个事务里写入，
+ * 提交后再从缓冲区裁掉。分片锁保证多实例下同一分片只有一个落库方。
+ * 落库失败时缓冲区不动，下次重试；同一批连续失败 max-attempts 次后逐条重放，
+ * 仍然失败的操作（以及解不开的条目）转入 likes:buffer:dead，分片继续往后走。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "like.buffer.enabled", havingValue = "true", matchIfMissing = true)
+public class LikeFlushService {
+
+    private final LikeService likeService;
+    private final RedisService redisService;
+    private final WeiboMetrics metrics;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lockLease;
+
+    public LikeFlushService(LikeService likeService,
+                            RedisService redisService,
+                            WeiboMetrics metrics,
+                            @Value("${like.buffer.batch-size:1000}") int batchSize,
+                            @Value("${like.buffer.max-attempts:5}") int maxAttempts,
+                            @Value("${like.buffer.lock-lease-seconds:30}") long lockLeaseSeconds) {
+        this.likeService = likeService;
+        this.redisService = redisService;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.lockLease = Duration.ofSeconds(lockLeaseSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${like.buffer.flush-interval-ms:500}")
+    public void flush() {
+        for (int shard = 0; shard < likeService.getShards(); shard++) {
+            try {
+                flushShard(shard);
+            } catch (RuntimeException e) {
+                // 单个分片失败不影响其余分片，操作仍在缓冲区里
+                metrics.likeFlushError();
+                log.warn("like buffer shard {} flush failed", shard, e);
+            }
+        }
+    }
+
+    private void flushShard(int shard) {
+        String token = redisService.tryLockLikeShard(shard, lockLease);
+        if (token == null) return;
+
+        try {
+            while (true) {
+                List<byte[]> raw = redisService.readLikeOps(shard, batchSize);
+                if (raw.isEmpty()) return;
+
+                List<LikeOp> ops = new ArrayList<>(raw.size());
+                List<byte[]> dead = new ArrayList<>();
+                for (byte[] entry : raw) {
+                    try {
+                        ops.add(LikeOp.decode(entry));
+                    } catch (RuntimeException e) {
+                        log.warn("undecodable like op in shard {}: {}", shard, new String(entry, StandardCharsets.UTF_8), e);
+                        dead.add(entry);
+                    }
+                }
+
+                if (!apply(shard, ops, dead)) return;
+
+                redisService.deadLetterLikeOps(dead);
+                metrics.likeDeadLetters(dead.size());
+                redisService.trimLikeOps(shard, raw.size());
+                if (raw.size() < batchSize) return;
+            }
+        } finally {
+            redisService.unlockLikeShard(shard, token);
+        }
+    }
+
+    // 返回 false 表示这批留在缓冲区等下次重试
+    private boolean apply(int shard, List<LikeOp> ops, List<byte[]> dead) {
+        if (ops.isEmpty()) return true;
+
+        try {
+            likeService.applyBuffered(ops);
+            return true;
+        } catch (RuntimeException e) {
+            metrics.likeFlushError();
+            long attempts = redisService.incrLikeFlushAttempts(shard);
+            if (attempts < maxAttempts) {
+                log.warn("like buffer shard {} batch of {} failed (attempt {}/{})", shard, ops.size(), attempts, maxAttempts, e);
+                return false;
+            }
+            log.error("like buffer shard {} batch of {} failed {} times, replaying one by one", shard, ops.size(), attempts, e);
+        }
+
+        // 重试耗尽：逐条重放，把坏的那几条挑出来，其余照常落库
+        for (LikeOp op : ops) {
+            try {
+                likeService.applyBuffered(List.of(op));
+            } catch (RuntimeException e) {
+                log.error("like op {} dead-lettered", op, e);
+                dead.add(op.encode());
+            }
+        }
+        return true;
+    }
+}
@@ -1,77 +1,185 @@
 package com.brayton.weibo.service;
 
+import com.brayton.weibo.common.AfterCommit;
+import com.brayton.weibo.common.LikeOp;
 import com.brayton.weibo.common.TimeUtil;
-import com.brayton.weibo.entity.Like;
-import com.brayton.weibo.entity.Post;
+import com.brayton.weibo.common.WeiboMetrics;
 import com.brayton.weibo.error.CommonErrorCode;
 import com.brayton.weibo.error.WeiboException;
 import com.brayton.weibo.event.LikeEvent;
+import com.brayton.weibo.repository.LikeBatchRepository.InsertedLike;
 import com.brayton.weibo.repository.LikeRepository;
 import com.brayton.weibo.repository.PostRepository;
-import com.brayton.weibo.repository.UserRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 点赞。默认先追加到 Redis 缓冲区（likes:buffer:{shard}）即返回，
+ * 由 LikeFlushService 定时按批落库；like.buffer.enabled=false 时每次点赞直接写库。
+ * 缓冲模式下已确认的点赞只和 Redis 的持久化一样可靠：docker-compose 里的 Redis 开了
+ * AOF + appendfsync always，没开 AOF 的 Redis 重启会丢掉尚未落库的点赞。
+ * 追加前先确认帖子存在（post:exists:{postId} 缓存），不存在照旧抛 POST_NOT_FOUND；
+ * 确认之后、落库之前帖子被删的点赞在落库时被过滤，计入 weibo.like.dropped。
+ */
 @Service
-@RequiredArgsConstructor
 public class LikeService {
 
     private final RedisService redisService;
     private final LikeRepository likeRepository;
     private final PostRepository postRepository;
     private final ApplicationEventPublisher publisher;
-    private final UserRepository userRepository;
-
-    @Async
-    public void updateLikedPost(Like like) {
-        redisService.addToLiked(
-                like.getUserId(),
-                like.getPostId(),
-                TimeUtil.toTs(like.getCreatedAt())
-        );
+    private final WeiboMetrics metrics;
+
+    private final boolean buffered;
+    private final int shards;
+    private final Duration existsTtl;
+    private final Duration missingTtl;
+
+    public LikeService(RedisService redisService,
+                       LikeRepository likeRepository,
+                       PostRepository postRepository,
+                       ApplicationEventPublisher publisher,
+                       WeiboMetrics metrics,
+                       @Value("${like.buffer.enabled:true}") boolean buffered,
+                       @Value("${like.buffer.shards:16}") int shards,
+                       @Value("${like.post-exists.ttl-seconds:600}") long existsTtlSeconds,
+                       @Value("${like.post-exists.missing-ttl-seconds:60}") long missingTtlSeconds) {
+        this.redisService = redisService;
+        this.likeRepository = likeRepository;
+        this.postRepository = postRepository;
+        this.publisher = publisher;
+        this.metrics = metrics;
+        this.buffered = buffered;
+        this.shards = shards;
+        this.existsTtl = Duration.ofSeconds(existsTtlSeconds);
+        this.missingTtl = Duration.ofSeconds(missingTtlSeconds);
     }
 
+    public int getShards() {
+        return shards;
+    }
+
+    /*
+     * 直写时点赞行和 LikeEvent 写出的 outbox 行必须在同一个事务里提交。
+     * 缓冲模式下只有存在性缓存未命中时才查一次库，否则不执行 SQL，LazyConnectionDataSourceProxy 不会真正取连接。
+     */
     @Transactional
     public void likePost(Long userId, Long postId) {
 
-        // 避免重复点赞
-        if (likeRepository.existsByUserIdAndPostId(userId, postId)) return;
-
-        // 检查
-        Post post = postRepository.findById(postId).orElseThrow(
-                () -> new WeiboException(CommonErrorCode.POST_NOT_FOUND)
-        );
-        if (!userRepository.existsById(userId)) {
-            throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
+        if (buffered) {
+            if (!postExists(postId)) {
+                throw new WeiboException(CommonErrorCode.POST_NOT_FOUND);
+            }
+            append(new LikeOp(true, userId, postId, System.currentTimeMillis()));
+            return;
         }
 
-        // 保存 Like 记录
-        Like like = new Like();
-        like.setUserId(userId);
-        like.setPostId(postId);
-        Like saved = likeRepository.save(like);
+        LocalDateTime now = LocalDateTime.now();
+        Optional<Long> authorId = likeRepository.insertLike(userId, postId, now);
 
-        // 更新 Post 的 likeCount
-        postRepository.incrementLikeCount(postId);
+        if (authorId.isEmpty()) {
+            // 重复点赞直接返回；只有这条少见的路径才多查一次帖子是否存在
+            if (!postRepository.existsById(postId)) {
+                throw new WeiboException(CommonErrorCode.POST_NOT_FOUND);
+            }
+            return;
+        }
 
-        if (!userId.equals(post.getUser().getId())) {
-            publisher.publishEvent(new LikeEvent(userId, post.getUser().getId(), postId));
+        if (!userId.equals(authorId.get())) {
+            publisher.publishEvent(new LikeEvent(userId, authorId.get(), postId));
         }
 
-        updateLikedPost(saved);
+        AfterCommit.run(() -> redisService.addToLiked(userId, postId, TimeUtil.toTs(now)));
     }
 
     @Transactional
     public void unlikePost(Long userId, Long postId) {
 
-        if (!likeRepository.existsByUserIdAndPostId(userId, postId)) return;
+        if (buffered) {
+            append(new LikeOp(false, userId, postId, System.currentTimeMillis()));
+            return;
+        }
+
+        if (likeRepository.deleteLike(userId, postId) == 0) return;
+
+        AfterCommit.run(() -> redisService.removeFromLiked(List.of(userId), postId));
+    }
+
+    // 先查缓存，未命中查库后回填；不存在的 id 也缓存一小段时间，挡住对任意 id 的重复点赞
+    private boolean postExists(Long postId) {
+        Boolean cached = redisService.getPostExists(postId);
+        if (cached != null) return cached;
+
+        boolean exists = postRepository.existsById(postId);
+        redisService.cachePostExists(postId, exists, exists ? existsTtl : missingTtl);
+        return exists;
+    }
+
+    // 同一帖子的操作落在同一分片，保证先后顺序
+    private void append(LikeOp op) {
+        redisService.appendLikeOp((int) Math.floorMod(op.postId(), (long) shards), op);
+    }
+
+    /**
+     * 落库一批缓冲的操作：同一 (用户, 帖子) 只保留最后一次，
+     * 多行 INSERT / DELETE 后按帖子聚合出 likeCount 增量，每个帖子一条 UPDATE。
+     * 语句都是幂等的，同一批重放不会重复计数。
+     */
+    @Transactional
+    public void applyBuffered(List<LikeOp> ops) {
+
+        Map<String, LikeOp> latest = new LinkedHashMap<>();
+        for (LikeOp op : ops) {
+            latest.put(op.userId() + ":" + op.postId(), op);
+        }
+        List<LikeOp> likes = new ArrayList<>();
+        List<LikeOp> unlikes = new ArrayList<>();
+        for (LikeOp op : latest.values()) {
+            (op.like() ? likes : unlikes).add(op);
+        }
+
+        List<InsertedLike> inserted = likeRepository.insertLikes(likes);
+        List<Long> unlikedPostIds = likeRepository.deleteLikes(unlikes);
+        countDropped(likes, inserted);
+
+        Map<Long, Long> deltas = new HashMap<>();
+        inserted.forEach(row -> deltas.merge(row.postId(), 1L, Long::sum));
+        unlikedPostIds.forEach(postId -> deltas.merge(postId, -1L, Long::sum));
+        deltas.forEach((postId, delta) -> {
+            if (delta != 0) postRepository.addLikeCount(postId, delta);
+        });
+
+        // 只为真正新增的点赞发通知、写 liked:{userId}
+        Map<String, LikeOp> byKey = new HashMap<>();
+        likes.forEach(op -> byKey.put(op.userId() + ":" + op.postId(), op));
+        List<LikeOp> added = new ArrayList<>(inserted.size());
+        for (InsertedLike row : inserted) {
+            added.add(byKey.get(row.userId() + ":" + row.postId()));
+            if (row.userId() != row.authorId()) {
+                publisher.publishEvent(new LikeEvent(row.userId(), row.authorId(), row.postId()));
+            }
+        }
+
+        AfterCommit.run(() -> redisService.applyLikedOps(added, unlikes));
+    }
+
+    // 没插进去的点赞要么是重复，要么帖子已删被 EXISTS 过滤；只有后者计数，多数批次不需要这次查询
+    private void countDropped(List<LikeOp> likes, List<InsertedLike> inserted) {
+        if (inserted.size() == likes.size()) return;
 
-        likeRepository.deleteByUserIdAndPostId(userId, postId);
+        Set<String> insertedKeys = new HashSet<>();
+        inserted.forEach(row -> insertedKeys.add(row.userId() + ":" + row.postId()));
+        List<LikeOp> skipped = likes.stream()
+                .filter(op -> !insertedKeys.contains(op.userId() + ":" + op.postId()))
+                .toList();
 
-        // 更新 Post 的 likeCount
-        postRepository.decrementLikeCount(postId);
+        Set<Long> existing = postRepository.findExistingIds(skipped.stream().map(LikeOp::postId).toList());
+        metrics.likeDropped((int) skipped.stream().filter(op -> !existing.contains(op.postId())).count());
     }
 }
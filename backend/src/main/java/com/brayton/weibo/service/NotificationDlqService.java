@@ -0,0 +1,48 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.config.NotificationTopology;
+import com.brayton.weibo.event.NotificationRetryRecoverer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * DLQ 运维：查看积压，修复问题后把消息放回原队列重新消费（重试次数清零）
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationDlqService {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+
+    public long getDepth() {
+        QueueInformation info = amqpAdmin.getQueueInfo(NotificationTopology.DEAD_LETTER_QUEUE);
+        return info == null ? 0 : info.getMessageCount();
+    }
+
+    /**
+     * @return 实际重放的条数
+     */
+    public int replay(int limit) {
+        int replayed = 0;
+        while (replayed < limit) {
+            Message message = rabbitTemplate.receive(NotificationTopology.DEAD_LETTER_QUEUE);
+            if (message == null) break;
+
+            MessageProperties props = message.getMessageProperties();
+            String queue = props.getHeader(NotificationRetryRecoverer.ORIGINAL_QUEUE_HEADER);
+            props.getHeaders().remove(NotificationRetryRecoverer.RETRY_COUNT_HEADER);
+            props.getHeaders().remove(NotificationRetryRecoverer.EXCEPTION_HEADER);
+            // 原队列未知的消息放回 DLQ 末尾，避免丢失
+            rabbitTemplate.send("", queue != null ? queue : NotificationTopology.DEAD_LETTER_QUEUE, message);
+            if (queue == null) break;
+            replayed++;
+        }
+        return replayed;
+    }
+}
@@ -0,0 +1,54 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.config.NotificationTopology;
+import com.brayton.weibo.event.EventType;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 过载保护：定时采样 LIKE 分片队列的积压，超过阈值时该分片上的 LIKE 通知直接丢弃（只计数），
+ * FOLLOW / COMMENT 不受影响。阈值为 0 时关闭。
+ */
+@Component
+public class NotificationLoadShedder {
+
+    private final AmqpAdmin amqpAdmin;
+    private final NotificationTopology topology;
+    private final long likeThreshold;
+
+    private final Map<String, Long> depths = new ConcurrentHashMap<>();
+
+    public NotificationLoadShedder(AmqpAdmin amqpAdmin,
+                                   NotificationTopology topology,
+                                   @Value("${notification.shed.like-threshold:10000}") long likeThreshold) {
+        this.amqpAdmin = amqpAdmin;
+        this.topology = topology;
+        this.likeThreshold = likeThreshold;
+    }
+
+    @Scheduled(fixedDelayString = "${notification.shed.sample-interval-ms:2000}")
+    public void sample() {
+        if (likeThreshold <= 0) return;
+
+        for (int shard = 0; shard < topology.getShards(); shard++) {
+            String queue = topology.queue(EventType.LIKE, shard);
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                depths.put(queue, info == null ? 0L : info.getMessageCount());
+            } catch (RuntimeException e) {
+                // broker 暂时不可用时不丢弃
+                depths.remove(queue);
+            }
+        }
+    }
+
+    public boolean shouldShed(String queue) {
+        return likeThreshold > 0 && depths.getOrDefault(queue, 0L) > likeThreshold;
+    }
+}
@@ -0,0 +1,181 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * notifications 表的分区维护和保留策略：
+ * 1. 提前建好未来几个月的月分区（notifications_yYYYYmMM）；DEFAULT 分区里已经有该月的行时
+ *    先把这些行搬进新分区再挂上去，某个月失败只记日志，不影响后面的步骤；
+ * 2. 保留期外的已读通知分批搬进 notifications_archive；
+ * 3. 整个月都在保留期外、且已经搬空的分区直接 DROP。
+ * 表还没按 ENTITY_SCHEMA.md 迁移成分区表时只做第 2 步。
+ */
+@Slf4j
+@Service
+public class NotificationRetentionService {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    private final NotificationRepository notificationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+
+    private final int retentionDays;
+    private final int batchSize;
+    private final int monthsAhead;
+
+    public NotificationRetentionService(NotificationRepository notificationRepository,
+                                        JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${notification.retention.days:90}") int retentionDays,
+                                        @Value("${notification.retention.batch-size:5000}") int batchSize,
+                                        @Value("${notification.partition.months-ahead:2}") int monthsAhead) {
+        this.notificationRepository = notificationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ensurePartitions();
+    }
+
+    @Scheduled(cron = "${notification.retention.cron:0 30 3 * * *}")
+    public void maintain() {
+        ensurePartitions();
+        long archived = archive();
+        int dropped = dropExpiredPartitions();
+        log.info("notification retention: archived {} rows, dropped {} partitions", archived, dropped);
+    }
+
+    private boolean isPartitioned() {
+        Integer n = jdbcTemplate.queryForObject("""
+            SELECT count(*) FROM pg_partitioned_table pt
+            JOIN pg_class c ON c.oid = pt.partrelid
+            WHERE c.relname = 'notifications'
+        """, Integer.class);
+        return n != null && n > 0;
+    }
+
+    public void ensurePartitions() {
+        if (!isPartitioned()) return;
+
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                ensurePartition(month);
+            } catch (RuntimeException e) {
+                log.error("notification partition {} not created", partitionName(month), e);
+            }
+        }
+    }
+
+    // DEFAULT 分区里有这个月的行时 CREATE ... PARTITION OF 会直接报错，
+    // 所以在一个事务里建空表、把行从 DEFAULT 搬过来，再 ATTACH
+    private void ensurePartition(YearMonth month) {
+        String partition = partitionName(month);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (Boolean.TRUE.equals(exists)) return;
+
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String defaultPartition = defaultPartition();
+        if (defaultPartition == null) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS %s PARTITION OF notifications FOR VALUES FROM ('%s') TO ('%s')"
+                    .formatted(partition, from, to));
+            return;
+        }
+
+        String range = "created_at >= '%s' AND created_at < '%s'".formatted(from, to);
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE %s (LIKE notifications INCLUDING DEFAULTS INCLUDING CONSTRAINTS)"
+                    .formatted(partition));
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM %s WHERE %s RETURNING *) INSERT INTO %s SELECT * FROM moved"
+                    .formatted(defaultPartition, range, partition));
+            jdbcTemplate.execute("ALTER TABLE notifications ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                    .formatted(partition, from, to));
+            if (moved > 0) {
+                log.info("moved {} notifications from {} into {}", moved, defaultPartition, partition);
+            }
+        });
+    }
+
+    private String defaultPartition() {
+        List<String> names = jdbcTemplate.queryForList("""
+            SELECT d.relname FROM pg_partitioned_table pt
+            JOIN pg_class c ON c.oid = pt.partrelid
+            JOIN pg_class d ON d.oid = pt.partdefid
+            WHERE c.relname = 'notifications'
+        """, String.class);
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    private long archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long total = 0;
+        int moved;
+        do {
+            moved = notificationRepository.archiveReadBefore(cutoff, batchSize);
+            total += moved;
+        } while (moved == batchSize);
+        return total;
+    }
+
+    // 未读的过期通知还在分区里时保留该分区
+    private int dropExpiredPartitions() {
+        if (!isPartitioned()) return 0;
+
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        List<String> partitions = jdbcTemplate.queryForList("""
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'notifications'
+        """, String.class);
+
+        int dropped = 0;
+        for (String partition : partitions) {
+            YearMonth month = parseMonth(partition);
+            if (month == null || !month.plusMonths(1).atDay(1).isBefore(cutoff)) continue;
+
+            Boolean empty = jdbcTemplate.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM %s)".formatted(partition), Boolean.class);
+            if (Boolean.TRUE.equals(empty)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "notifications_" + month.format(PARTITION_SUFFIX);
+    }
+
+    private static YearMonth parseMonth(String partition) {
+        try {
+            return YearMonth.parse(partition.substring("notifications_".length()), PARTITION_SUFFIX);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.brayton.weibo.service;
 
-import com.brayton.weibo.config.RabbitConfig;
+import com.brayton.weibo.common.WeiboMetrics;
 import com.brayton.weibo.config.security.CustomUserDetails;
 import com.brayton.weibo.dto.NotificationResponse;
 import com.brayton.weibo.dto.UnreadCountResponse;
@@ -12,73 +12,94 @@ import com.brayton.weibo.error.CommonErrorCode;
 import com.brayton.weibo.error.WeiboException;
 import com.brayton.weibo.event.*;
 import com.brayton.weibo.repository.FollowRepository;
+import com.brayton.weibo.repository.NotificationReadStateRepository;
 import com.brayton.weibo.repository.NotificationRepository;
 import com.brayton.weibo.repository.PostRepository;
 import com.brayton.weibo.repository.UserRepository;
 import com.brayton.weibo.webSocket.WebSocketPusher;
 import com.sun.source.tree.ForLoopTree;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PostMapping;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
+    private final NotificationReadStateRepository readStateRepository;
     private final WebSocketPusher wsPusher;
     private final UserRepository userRepository;
     private final FollowRepository followRepository;
     private final PostRepository postRepository;
+    private final WeiboMetrics metrics;
+    private final NotificationLoadShedder loadShedder;
 
-    @RabbitListener(queues = RabbitConfig.FOLLOW_QUEUE)
+    @RabbitListener(queues = "#{@notificationTopology.queues('FOLLOW')}", containerFactory = "notificationListenerFactory")
     public void onMessage(FollowEvent message) {
-        System.out.println("收到通知：" + message.getType());
+        metrics.consume(EventType.FOLLOW, () -> {
+            Notification n = Notification.follow(message);
+            notificationRepository.save(n);
+            wsPusher.notifyUserFollow(message.getFollowingId(), n);
+        });
+    }
 
-        Notification n = Notification.follow(message);
-        notificationRepository.save(n);
-        wsPusher.notifyUserFollow(message.getFollowingId(), n);
+    // 低优先级：所在分片积压过多时直接丢弃
+    @RabbitListener(queues = "#{@notificationTopology.queues('LIKE')}", containerFactory = "notificationListenerFactory")
+    public void onLikeMessage(LikeEvent message, @Header(AmqpHeaders.CONSUMER_QUEUE) String queue) {
+        if (loadShedder.shouldShed(queue)) {
+            metrics.notificationShed();
+            return;
+        }
+        onMessage(message);
     }
 
-    @RabbitListener(queues = RabbitConfig.LIKE_QUEUE)
     public void onMessage(LikeEvent message) {
-        System.out.println("收到通知：" + message.getType());
-
-        Notification n = Notification.like(message);
-        notificationRepository.save(n);
-        wsPusher.notifyUserLike(message.getToUserId(), n);
+        metrics.consume(EventType.LIKE, () -> {
+            Notification n = Notification.like(message);
+            notificationRepository.save(n);
+            wsPusher.notifyUserLike(message.getToUserId(), n);
+        });
     }
 
-    @RabbitListener(queues = RabbitConfig.COMMENT_QUEUE)
+    @RabbitListener(queues = "#{@notificationTopology.queues('COMMENT')}", containerFactory = "notificationListenerFactory")
     public void onMessage(CommentEvent message) {
-        System.out.println("收到通知：" + message.getType());
-
-        Notification n = Notification.comment(message);
-        notificationRepository.save(n);
-        wsPusher.notifyUserComment(message.getToUserId(), n);
+        metrics.consume(EventType.COMMENT, () -> {
+            Notification n = Notification.comment(message);
+            notificationRepository.save(n);
+            wsPusher.notifyUserComment(message.getToUserId(), n);
+        });
     }
 
     public UnreadCountResponse getUnreadCounts(Long userId) {
 
+        Map<EventType, Integer> counts = new EnumMap<>(EventType.class);
+        for (Object[] row : readStateRepository.countUnreadByType(userId)) {
+            counts.put(EventType.valueOf((String) row[0]), ((Number) row[1]).intValue());
+        }
+
         return UnreadCountResponse.builder()
-                .follow(notificationRepository.countByTargetIdAndReadFalseAndType(userId, EventType.FOLLOW))
-                .like(notificationRepository.countByTargetIdAndReadFalseAndType(userId, EventType.LIKE))
-                .comment(notificationRepository.countByTargetIdAndReadFalseAndType(userId, EventType.COMMENT))
+                .follow(counts.getOrDefault(EventType.FOLLOW, 0))
+                .like(counts.getOrDefault(EventType.LIKE, 0))
+                .comment(counts.getOrDefault(EventType.COMMENT, 0))
                 .build();
     }
 
-    @Transactional
+    // 只推进已读水位，不改通知行；水位取 max(id) 的前提见 markAllRead
     public void markAllAsRead(Long targetId, EventType type) {
-        notificationRepository.markAllRead(targetId, type);
+        readStateRepository.markAllRead(targetId, type.name());
     }
 
     public List<NotificationResponse> getNotifications(Long userId, EventType type, Long lastId, int size) {
@@ -87,6 +108,8 @@ public class NotificationService {
                         notificationRepository.getNotifications(userId, type, PageRequest.of(0, size)) :
                         notificationRepository.getNotifications(userId, type, lastId, PageRequest.of(0, size));
 
+        long lastReadId = readStateRepository.findLastReadId(userId, type.name()).orElse(0L);
+
         List<NotificationResponse> responses = new ArrayList<>();
         for (Notification notification : notifications) {
 
@@ -99,6 +122,7 @@ public class NotificationService {
                         .type(type)
                         .sender(new UserResponse(sender, false, false, 0, 0))
                         .createdAt(notification.getCreatedAt())
+                        .read(isRead(notification, lastReadId))
                         .build());
                 continue;
             }
@@ -115,10 +139,15 @@ public class NotificationService {
                     .postPreview(post.getImages().isEmpty() ? post.getContent() : post.getImages().getFirst())
                     .commentContent(notification.getContent())
                     .createdAt(notification.getCreatedAt())
-                    .read(notification.getRead())
+                    .read(isRead(notification, lastReadId))
                     .build());
         }
 
         return responses;
     }
+
+    // 旧 read 列退役前和水位一起判定，与 countUnreadByType / archiveReadBefore 保持一致
+    private static boolean isRead(Notification notification, long lastReadId) {
+        return Boolean.TRUE.equals(notification.getRead()) || notification.getId() <= lastReadId;
+    }
 }
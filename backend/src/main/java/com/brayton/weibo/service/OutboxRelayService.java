@@ -0,0 +1,41 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.entity.OutboxMessage;
+import com.brayton.weibo.event.OutboxDispatcher;
+import com.brayton.weibo.repository.OutboxRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * outbox 投递：锁住一批（SKIP LOCKED），投递确认后在同一事务里删除。
+ * 投递成功但提交失败时会重复投递，消费方按至少一次处理。
+ */
+@Service
+public class OutboxRelayService {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxDispatcher dispatcher;
+    private final int batchSize;
+
+    public OutboxRelayService(OutboxRepository outboxRepository,
+                              OutboxDispatcher dispatcher,
+                              @Value("${outbox.relay.batch-size:500}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.dispatcher = dispatcher;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    @Transactional
+    public void relay() {
+        List<OutboxMessage> batch = outboxRepository.lockBatch(batchSize);
+        if (batch.isEmpty()) return;
+
+        dispatcher.dispatch(batch);
+        outboxRepository.deleteAllByIdInBatch(batch.stream().map(OutboxMessage::getId).toList());
+    }
+}
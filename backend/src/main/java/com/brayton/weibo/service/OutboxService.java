@@ -0,0 +1,54 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.config.NotificationTopology;
+import com.brayton.weibo.entity.OutboxMessage;
+import com.brayton.weibo.event.Event;
+import com.brayton.weibo.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 通知事件的 outbox：append 在调用方事务里写一行，消息体用与 RabbitTemplate 相同的转换器序列化，
+ * 投递时原样还原成 AMQP 消息（content-type / __TypeId__ 一并保留），消费方无感知。
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxRepository outboxRepository;
+    private final MessageConverter messageConverter;
+    private final NotificationTopology topology;
+
+    public void append(Event event) {
+        Message message = messageConverter.toMessage(event, new MessageProperties());
+
+        OutboxMessage row = new OutboxMessage();
+        row.setType(event.getType());
+        row.setRoutingKey(topology.routingKey(event.getType(), event.getTargetUserId()));
+        row.setContentType(message.getMessageProperties().getContentType());
+        row.setTypeId(message.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME));
+        row.setPayload(message.getBody());
+        outboxRepository.save(row);
+    }
+
+    public Message toMessage(OutboxMessage row) {
+        MessageProperties props = new MessageProperties();
+        props.setContentType(row.getContentType());
+        if (row.getTypeId() != null) {
+            props.setContentEncoding(StandardCharsets.UTF_8.name());
+            props.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, row.getTypeId());
+        }
+        props.setMessageId(String.valueOf(row.getId()));
+        return new Message(row.getPayload(), props);
+    }
+
+    public Object toEvent(OutboxMessage row) {
+        return messageConverter.fromMessage(toMessage(row));
+    }
+}
@@ -0,0 +1,163 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.dto.PostPurgeProgress;
+import com.brayton.weibo.entity.Like;
+import com.brayton.weibo.event.TimelineRetractEvent;
+import com.brayton.weibo.repository.CommentRepository;
+import com.brayton.weibo.repository.LikeRepository;
+import com.brayton.weibo.repository.NotificationRepository;
+import com.brayton.weibo.repository.PostRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 删帖后的关联数据清理：deletePost 只做软删，提交后在后台按批删除点赞、评论、通知，
+ * 每批一个短事务；全部删完后把帖子标记为 purged。
+ * 时间线条目由 TimelineRetractionService 收回，这里只清点赞者的 liked:{userId}。
+ */
+@Slf4j
+@Service
+public class PostPurgeService {
+
+    private final PostRepository postRepository;
+    private final LikeRepository likeRepository;
+    private final CommentRepository commentRepository;
+    private final NotificationRepository notificationRepository;
+    private final RedisService redisService;
+
+    // 每条 DELETE 最多删除的行数
+    private final int batchSize;
+    // 每次扫描最多补做的帖子数
+    private final int sweepSize;
+    private final ExecutorService executor;
+
+    // 已排队的帖子，事件和定时扫描不会重复提交
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong purgedPosts = new AtomicLong();
+    private final AtomicLong failedPosts = new AtomicLong();
+    private final AtomicLong deletedLikes = new AtomicLong();
+    private final AtomicLong deletedComments = new AtomicLong();
+    private final AtomicLong deletedNotifications = new AtomicLong();
+    private volatile Long currentPostId;
+    private volatile LocalDateTime lastPurgedAt;
+
+    public PostPurgeService(PostRepository postRepository,
+                            LikeRepository likeRepository,
+                            CommentRepository commentRepository,
+                            NotificationRepository notificationRepository,
+                            RedisService redisService,
+                            @Value("${post.purge.batch-size:1000}") int batchSize,
+                            @Value("${post.purge.sweep-size:100}") int sweepSize) {
+        this.postRepository = postRepository;
+        this.likeRepository = likeRepository;
+        this.commentRepository = commentRepository;
+        this.notificationRepository = notificationRepository;
+        this.redisService = redisService;
+        this.batchSize = batchSize;
+        this.sweepSize = sweepSize;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "post-purge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // 与时间线收回共用删帖事件；回滚的删除不会触发清理
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(TimelineRetractEvent event) {
+        if (event.getReason() == TimelineRetractEvent.Reason.POST_DELETED) {
+            schedule(event.getTargetId());
+        }
+    }
+
+    // 补做重启前没清完或失败的帖子
+    @Scheduled(fixedDelayString = "${post.purge.sweep-interval-ms:300000}",
+            initialDelayString = "${post.purge.sweep-initial-delay-ms:60000}")
+    public void sweep() {
+        postRepository.findUnpurgedDeletedIds(sweepSize).forEach(this::schedule);
+    }
+
+    private void schedule(Long postId) {
+        if (!pending.add(postId)) return;
+
+        executor.execute(() -> {
+            try {
+                purge(postId);
+            } catch (RuntimeException e) {
+                // 帖子仍是 purged = false，下一次 sweep 会重做
+                failedPosts.incrementAndGet();
+                log.warn("purge of deleted post {} failed, will retry on next sweep", postId, e);
+            } finally {
+                pending.remove(postId);
+            }
+        });
+    }
+
+    private void purge(Long postId) {
+        currentPostId = postId;
+        try {
+            // 点赞：先清 liked:{userId}，再按 id 删除
+            while (true) {
+                List<Like> likes = likeRepository.findPurgeBatch(postId, PageRequest.of(0, batchSize));
+                if (likes.isEmpty()) break;
+
+                redisService.removeFromLiked(likes.stream().map(Like::getUserId).toList(), postId);
+                likeRepository.deleteAllByIdInBatch(likes.stream().map(Like::getId).toList());
+                deletedLikes.addAndGet(likes.size());
+                if (likes.size() < batchSize) break;
+            }
+
+            deletedComments.addAndGet(deleteInBatches(limit -> commentRepository.deleteBatchByPostId(postId, limit)));
+            deletedNotifications.addAndGet(deleteInBatches(limit -> notificationRepository.deleteBatchByPostId(postId, limit)));
+
+            postRepository.markPurged(postId);
+            purgedPosts.incrementAndGet();
+            lastPurgedAt = LocalDateTime.now();
+        } finally {
+            currentPostId = null;
+        }
+    }
+
+    private long deleteInBatches(IntUnaryOperator deleteBatch) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = deleteBatch.applyAsInt(batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    public PostPurgeProgress getProgress() {
+        return new PostPurgeProgress(
+                pending.size(),
+                currentPostId,
+                purgedPosts.get(),
+                failedPosts.get(),
+                deletedLikes.get(),
+                deletedComments.get(),
+                deletedNotifications.get(),
+                lastPurgedAt
+        );
+    }
+}
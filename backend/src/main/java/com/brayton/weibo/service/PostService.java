@@ -1,8 +1,13 @@
 package com.brayton.weibo.service;
 
+import com.brayton.weibo.common.AfterCommit;
 import com.brayton.weibo.common.ChineseUtil;
+import com.brayton.weibo.common.FeedCursor;
 import com.brayton.weibo.common.FeedRandomizer;
 import com.brayton.weibo.common.TimeUtil;
+import com.brayton.weibo.common.TimelineSlice;
+import com.brayton.weibo.common.WeiboMetrics;
+import com.brayton.weibo.common.WeiboMetrics.Feed;
 import com.brayton.weibo.dto.*;
 import com.brayton.weibo.entity.Like;
 import com.brayton.weibo.entity.Post;
@@ -12,14 +17,16 @@ import com.brayton.weibo.enums.PostVisibility;
 import com.brayton.weibo.error.CommonErrorCode;
 import com.brayton.weibo.error.WeiboException;
 import com.brayton.weibo.event.LikeEvent;
+import com.brayton.weibo.event.TimelineRetractEvent;
 import com.brayton.weibo.repository.*;
 import com.brayton.weibo.webSocket.WebSocketPusher;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,40 +39,70 @@ public class PostService {
     private final UserRepository userRepository;
     private final FollowRepository followRepository;
     private final LikeRepository likeRepository;
-    private final CommentRepository commentRepository;
     private final RedisService redisService;
+    private final TimelineRebuildService timelineRebuildService;
+    private final UserProfileService userProfileService;
     private final WebSocketPusher wsPusher;
+    private final ApplicationEventPublisher publisher;
+    private final WeiboMetrics metrics;
 
     /**
-     * 根据 post 构建完整响应
+     * 一页帖子的转发图：被转发帖（可能多层）和整页的点赞状态
      */
-    private PostResponse buildPostResponse(Post post, Long currentUserId, boolean following, boolean followed) {
+    private record PostGraph(Map<Long, Post> refs, Set<Long> liked) {
 
-        User author = post.getUser();
-        boolean isLiked = likeRepository.existsByUserIdAndPostId(currentUserId, post.getId());
+        // 被转发帖已删除时按没有处理
+        Post refOf(Post post) {
+            if (post.getRefPost() == null) return null;
+            Post ref = refs.get(post.getRefPost().getId());
+            return ref == null || ref.isDeleted() ? null : ref;
+        }
+    }
 
-        return PostResponse.builder()
-                .id(post.getId())
-                // Don't care friendCount and postCount
-                .user(new UserResponse(author, following, followed, 0, 0))
-                .type(post.getType())
-                .content(post.getContent())
-                .images(post.getImages())
-                .refPost(post.getRefPost() == null ? null : buildPostResponse(post.getRefPost(), currentUserId, false, false)) // don't care
-                .visibility(post.getVisibility())
-                .liked(isLiked)
-                .likeCount(post.getLikeCount())
-                .commentCount(post.getCommentCount())
-                .repostCount(post.getRepostCount())
-                .createdAt(post.getCreatedAt())
-                .updatedAt(post.getUpdatedAt())
-                .isEdited(post.isEdited())
-                .build();
+    /**
+     * 按层批量解析转发链：已经 fetch join 进来的直接用，其余每层一次查询连同作者取回；
+     * 点赞状态整页（含被转发帖）一次查询。查询数只和转发深度有关，与页大小无关。
+     */
+    private PostGraph hydrate(Long userId, Collection<Post> posts) {
+        Map<Long, Post> refs = new HashMap<>();
+        Set<Long> seen = new HashSet<>();
+        Collection<Post> level = posts;
+        while (!level.isEmpty()) {
+            List<Post> next = new ArrayList<>();
+            Set<Long> missing = new HashSet<>();
+            for (Post post : level) {
+                Post ref = post.getRefPost();
+                // 代理上取 id 不会触发加载
+                if (ref == null || !seen.add(ref.getId())) continue;
+                if (Hibernate.isInitialized(ref) && Hibernate.isInitialized(ref.getUser())) {
+                    refs.put(ref.getId(), ref);
+                    next.add(ref);
+                } else {
+                    missing.add(ref.getId());
+                }
+            }
+            if (!missing.isEmpty()) {
+                for (Post ref : postRepository.findByIdInWithRefGraph(missing)) {
+                    refs.put(ref.getId(), ref);
+                    next.add(ref);
+                }
+            }
+            level = next;
+        }
+
+        Set<Long> ids = new HashSet<>(refs.keySet());
+        posts.forEach(p -> ids.add(p.getId()));
+        Set<Long> liked = ids.isEmpty() ? Collections.emptySet() : likeRepository.findLikedPostIds(userId, ids);
+        return new PostGraph(refs, liked);
     }
 
-    private PostResponse buildPostResponse(Post post, Long currentUserId, boolean following, boolean followed, boolean isLiked) {
+    /**
+     * 根据 post 构建完整响应，转发帖和点赞状态从 graph 里取，不再逐条查库
+     */
+    private PostResponse buildPostResponse(Post post, PostGraph graph, boolean following, boolean followed) {
 
         User author = post.getUser();
+        Post ref = graph.refOf(post);
 
         return PostResponse.builder()
                 .id(post.getId())
@@ -74,9 +111,9 @@ public class PostService {
                 .type(post.getType())
                 .content(post.getContent())
                 .images(post.getImages())
-                .refPost(post.getRefPost() == null ? null : buildPostResponse(post.getRefPost(), currentUserId, false, false)) // don't care
+                .refPost(ref == null ? null : buildPostResponse(ref, graph, false, false)) // don't care
                 .visibility(post.getVisibility())
-                .liked(isLiked)
+                .liked(graph.liked().contains(post.getId()))
                 .likeCount(post.getLikeCount())
                 .commentCount(post.getCommentCount())
                 .repostCount(post.getRepostCount())
@@ -86,8 +123,6 @@ public class PostService {
                 .build();
     }
 
-
-
     // !!! USE FOR NEWEST/FOLLOWING/LIKED POST TIMELINE !!!
     private boolean isVisibleToUser(Post post, boolean self, boolean following, boolean followed) {
         // 自己永远能看到自己的帖子
@@ -103,84 +138,102 @@ public class PostService {
         };
     }
 
-    public List<PostResponse> getNewestFeed(Long userId, Long lastTimestamp, int size) {
+    @Transactional(readOnly = true)
+    public FeedPageResponse getNewestFeed(Long userId, String cursorParam, int size) {
+        return metrics.feed(Feed.NEWEST).record(() -> assembleNewestFeed(userId, cursorParam, size));
+    }
 
-        long cursor = lastTimestamp == null ? Long.MAX_VALUE : lastTimestamp;
-        List<PostResponse> result = new ArrayList<>();
+    private FeedPageResponse assembleNewestFeed(Long userId, String cursorParam, int size) {
 
-        while (result.size() < size) {
-            int fetch = Math.min(size * 5, 100);
-            List<Long> postIds = redisService.getFeedAfter(userId, cursor, fetch);
-            if (postIds.isEmpty()) break;
-
-            List<Post> posts = postRepository.findByIdInWithUser(postIds);
-            Map<Long, Post> postMap =
-                    posts.stream().collect(Collectors.toMap(Post::getId, p -> p));
-            List<Post> orderedPosts = postIds.stream()
-                    .map(postMap::get)
-                    .filter(Objects::nonNull)
-                    .toList();
+        FeedCursor cursor = FeedCursor.decode(cursorParam);
 
-            Set<Long> authorIds = orderedPosts.stream()
-                    .map(p -> p.getUser().getId())
-                    .collect(Collectors.toSet());
-            Set<Long> followingIds = followRepository.findFollowingIds(userId, authorIds);
-            Set<Long> followedByIds = followRepository.findFollowedByIds(userId, authorIds);
+        // 首页时检查 feed 是否丢失（Redis flush / 淘汰），必要时从 DB 重建
+        if (cursor == null) {
+            timelineRebuildService.ensureFeed(userId);
+            redisService.touchFeed(userId);
+        }
 
-            Set<Long> postIdSet = orderedPosts.stream()
-                    .map(Post::getId)
-                    .collect(Collectors.toSet());
+        // 略多取几条弥补已删除的帖子
+        int fetch = size + size / 4 + 1;
+        TimelineSlice slice = redisService.getFeedPage(userId, cursor, fetch);
+        if (slice.isEmpty()) return new FeedPageResponse(Collections.emptyList(), null);
 
-            Set<Long> likedPostIds = likeRepository.findLikedPostIds(userId, postIdSet);
+        List<Long> postIds = Arrays.stream(slice.postIds()).boxed().toList();
+        List<Post> posts = postRepository.findByIdInWithRefGraph(postIds);
+        Map<Long, Post> postMap =
+                posts.stream().collect(Collectors.toMap(Post::getId, p -> p));
 
-            for (Post post : orderedPosts) {
-                if (result.size() >= size) break;
+        // 时间线写入时已保证可见性，这里只补充展示用的关系和点赞状态
+        Set<Long> authorIds = posts.stream()
+                .map(p -> p.getUser().getId())
+                .collect(Collectors.toSet());
+        Set<Long> followedByIds = followRepository.findFollowedByIds(userId, authorIds);
+        PostGraph graph = hydrate(userId, posts);
 
-                Long authorId = post.getUser().getId();
-                boolean sameUser = authorId.equals(userId);
-                boolean following = sameUser || followingIds.contains(authorId);
-                boolean followed  = sameUser || followedByIds.contains(authorId);
-                boolean isLiked = likedPostIds.contains(post.getId());
+        List<PostResponse> result = new ArrayList<>();
+        int consumed = 0;
+        int stale = 0;
+        for (int i = 0; i < slice.size() && result.size() < size; i++) {
+            consumed = i + 1;
+
+            Post post = postMap.get(slice.postIds()[i]);
+            if (post == null) { // 已删除
+                stale++;
+                continue;
+            }
 
-                if (isVisibleToUser(post, sameUser, following, followed)) {
-                    result.add(buildPostResponse(post, userId, following, followed, isLiked));
-                }
+            Long authorId = post.getUser().getId();
+            boolean sameUser = authorId.equals(userId);
+            boolean followed = sameUser || followedByIds.contains(authorId);
 
-                cursor = TimeUtil.toTs(post.getCreatedAt());
-            }
+            result.add(buildPostResponse(post, graph, true, followed));
         }
 
-        return result;
+        metrics.feedStaleEntries(Feed.NEWEST, stale);
+
+        // cursor 指向最后一个被消费的条目（无论是否可见），下一页从它之后继续
+        if (consumed == 0) return new FeedPageResponse(result, cursorParam);
+        boolean exhausted = consumed == slice.size() && !slice.hasMore();
+        String nextCursor = exhausted ? null
+                : new FeedCursor(slice.scores()[consumed - 1], slice.postIds()[consumed - 1]).encode();
+
+        return new FeedPageResponse(result, nextCursor);
     }
 
+    @Transactional(readOnly = true)
     public List<PostResponse> getFollowingPosts(Long userId) {
+        return metrics.feed(Feed.FOLLOWING).record(() -> assembleFollowingPosts(userId));
+    }
 
-        String key = "feed:" + userId;
+    private List<PostResponse> assembleFollowingPosts(Long userId) {
 
-        // Step 1: Redis 随机抽样
+        // Step 1: Redis 随机抽样（feed:{userId} 和好友子时间线 feed:{userId}:f 一起）
         int size = 20;
         int sampleCount = size * 3;
-        List<Long> ids = redisService.getRandomZSetMembers(key, sampleCount);
-        if (ids.isEmpty()) return Collections.emptyList();
+        long[] ids = redisService.getRandomFeedMembers(userId, sampleCount);
+        if (ids.length == 0) return Collections.emptyList();
 
         // Step 2: DB 批量查
-        List<Post> posts = postRepository.findByIdIn(ids);
+        List<Post> posts = postRepository.findByIdInWithRefGraph(Arrays.stream(ids).boxed().toList());
         if (posts.isEmpty()) return Collections.emptyList();
+        PostGraph graph = hydrate(userId, posts);
+
+        // Step 3: 子时间线写入 / 收回时已保证可见性，这里只去掉自己的帖子，
+        // 回关关系整批一次查出，只用于展示
+        Set<Long> authorIds = posts.stream()
+                .map(p -> p.getUser().getId())
+                .collect(Collectors.toSet());
+        Set<Long> followedByIds = followRepository.findFollowedByIds(userId, authorIds);
 
-        // Step 3: 可见性过滤
         List<PostResponse> visiblePosts = new ArrayList<>();
+        int stale = ids.length - posts.size();
         for (Post p : posts) {
             Long authorId = p.getUser().getId();
+            if (authorId.equals(userId)) continue;
 
-            boolean self = authorId.equals(userId);
-            if (self) continue;
-            boolean following = followRepository.existsByFollowerIdAndFollowingId(userId, authorId);
-            boolean followed = followRepository.existsByFollowerIdAndFollowingId(authorId, userId);
-
-            if (isVisibleToUser(p, false, following, followed)) {
-                visiblePosts.add(buildPostResponse(p, userId, true, followed));
-            }
+            visiblePosts.add(buildPostResponse(p, graph, true, followedByIds.contains(authorId)));
         }
+        metrics.feedStaleEntries(Feed.FOLLOWING, stale);
 
         if (visiblePosts.isEmpty()) return Collections.emptyList();
 
@@ -198,21 +251,30 @@ public class PostService {
         );
     }
 
+    @Transactional(readOnly = true)
     public LikedPostsResponse getLikedPosts(Long userId, Long lastTimestamp, int size) {
+        return metrics.feed(Feed.LIKED).record(() -> assembleLikedPosts(userId, lastTimestamp, size));
+    }
+
+    private LikedPostsResponse assembleLikedPosts(Long userId, Long lastTimestamp, int size) {
 
         long cursor = lastTimestamp == null ? Long.MAX_VALUE : lastTimestamp;
         List<PostResponse> result = new ArrayList<>();
 
+        int rounds = 0;
         while (result.size() < size) {
-            Set<Object> postIds = redisService.getLikedAfter(userId, cursor, size);
-            if (postIds.isEmpty()) break;
+            if (rounds++ > 0) metrics.feedRefill(Feed.LIKED);
+            long[] ids = redisService.getLikedAfter(userId, cursor, size);
+            if (ids.length == 0) break;
+            List<Long> postIds = Arrays.stream(ids).boxed().toList();
 
-            List<Post> posts = postRepository.findByIdIn(postIds);
+            List<Post> posts = postRepository.findByIdInWithRefGraph(postIds);
+            PostGraph graph = hydrate(userId, posts);
             Map<Long, Post> map = posts.stream()
                     .collect(Collectors.toMap(Post::getId, p -> p));
 
             List<Post> ordered = postIds.stream()
-                    .map(id -> map.get(Long.valueOf(id.toString())))
+                    .map(map::get)
                     .filter(Objects::nonNull)
                     .toList();
 
@@ -229,7 +291,7 @@ public class PostService {
                 boolean followed = sameUser || followRepository.existsByFollowerIdAndFollowingId(authorId, userId);
 
                 if (isVisibleToUser(post, sameUser, following, followed)) {
-                    result.add(buildPostResponse(post, userId, following, followed));
+                    result.add(buildPostResponse(post, graph, following, followed));
                 }
 
                 cursor = TimeUtil.toTs(like.getCreatedAt());
@@ -254,6 +316,7 @@ public class PostService {
         return List.of(PostVisibility.PUBLIC);
     }
 
+    @Transactional(readOnly = true)
     public List<PostResponse> getAllPosts(Long userId, Long currentUserId, Long lastId, int size) {
 
         boolean sameUser = userId.equals(currentUserId);
@@ -268,11 +331,13 @@ public class PostService {
                 PageRequest.of(0, size)
         );
 
+        PostGraph graph = hydrate(currentUserId, posts);
         return posts.stream()
-                .map(post -> buildPostResponse(post, currentUserId, following, followed))
+                .map(post -> buildPostResponse(post, graph, following, followed))
                 .toList();
     }
 
+    @Transactional(readOnly = true)
     public List<PostResponse> getFriendPosts(Long currentUserId, Long lastId, int size) {
 
         List<Post> posts = postRepository.findNewestPosts(
@@ -282,11 +347,13 @@ public class PostService {
                 PageRequest.of(0, size)
         );
 
+        PostGraph graph = hydrate(currentUserId, posts);
         return posts.stream()
-                .map(post -> buildPostResponse(post, currentUserId, true, true))
+                .map(post -> buildPostResponse(post, graph, true, true))
                 .toList();
     }
 
+    @Transactional(readOnly = true)
     public List<PostResponse> getSearchResults(String query, Long lastId, int size, Long selfId) {
 
         lastId = lastId == null ? Long.MAX_VALUE : lastId;
@@ -308,42 +375,48 @@ public class PostService {
                     PageRequest.of(0, size)
             );
 
+        PostGraph graph = hydrate(selfId, posts);
         return posts.stream()
-                .map(post -> buildPostResponse(post, selfId, false, false))
+                .map(post -> buildPostResponse(post, graph, false, false))
                 .toList();
     }
 
 
     @Async
     public void pushPostToFollowersFeed(Post post) {
+        metrics.fanout(post.getVisibility()).record(() -> fanOut(post));
+    }
+
+    private void fanOut(Post post) {
         Long authorId = post.getUser().getId();
-        PostVisibility visibility = post.getVisibility();
         long ts = TimeUtil.toTs(post.getCreatedAt());
 
-        Set<Long> pushIds = new HashSet<>();
-
-        // self
-        pushIds.add(authorId);
+        // 自己的主时间线永远包含自己的帖子
+        redisService.addToFeed(authorId, post.getId(), ts);
 
-        if (visibility == PostVisibility.FRIENDS) {
-            Set<Long> friendIds = followRepository.findFriendIds(authorId);
-            pushIds.addAll(friendIds);
-        } else if (visibility == PostVisibility.FOLLOWERS) {
-            Set<Long> followerIds = followRepository.findFollowerIds(authorId);
-            pushIds.addAll(followerIds);
-        } else if (visibility == PostVisibility.PUBLIC) {
+        Set<Long> audience = feedAudience(authorId, post.getVisibility());
+        metrics.fanoutWidth(audience.size());
+        if (post.getVisibility() == PostVisibility.FRIENDS) {
+            redisService.addToFriendFeeds(audience, post.getId(), ts);
+        } else {
             // todo: recommend post
-            Set<Long> followerIds = followRepository.findFollowerIds(authorId);
-            pushIds.addAll(followerIds);
+            redisService.addToFeeds(audience, post.getId(), ts);
         }
 
-        for (Long pushId : pushIds) {
-            redisService.addToFeed(pushId, post.getId(), ts);
-            if (pushId.equals(authorId)) continue;
+        for (Long pushId : audience) {
             wsPusher.notifyUserNewPost(pushId);
         }
     }
 
+    // 某可见性下需要写入 / 收回的粉丝集合
+    private Set<Long> feedAudience(Long authorId, PostVisibility visibility) {
+        return switch (visibility) {
+            case PUBLIC, FOLLOWERS -> followRepository.findFollowerIds(authorId);
+            case FRIENDS -> followRepository.findFriendIds(authorId);
+            case PRIVATE -> Collections.emptySet();
+        };
+    }
+
     @Transactional
     public PostResponse createPost(Long userId, CreatePostRequest req) {
 
@@ -369,6 +442,8 @@ public class PostService {
         post.setEdited(false);
 
         Post saved = postRepository.save(post);
+        userRepository.incrementPostCountById(userId);
+        userProfileService.evict(userId);
 
         if (refPost != null) {
             postRepository.incrementRepostCount(refPost.getId());
@@ -377,7 +452,7 @@ public class PostService {
         // fan-out
         pushPostToFollowersFeed(saved);
 
-        return buildPostResponse(saved, userId, true, true, false); // 返回新帖详情
+        return buildPostResponse(saved, hydrate(userId, List.of(saved)), true, true); // 返回新帖详情
     }
 
     @Transactional
@@ -391,19 +466,22 @@ public class PostService {
             throw new WeiboException(CommonErrorCode.POST_CANT_DELETE);
         }
 
-        // 1. 删点赞
-        likeRepository.deleteAllByPostId(postId);
-
-        // 2. 删评论（如果有 commentRepository）
-        commentRepository.deleteAllByPostId(postId);
-
-        // 3. 删转发
+        // 1. 转发数
         if (post.getRefPost() != null) {
             postRepository.decrementRepostCount(post.getRefPost().getId());
         }
 
-        // 3. 删帖子
+        // 2. 软删帖子（@SQLDelete）
         postRepository.deleteById(postId);
+        userRepository.decrementPostCountById(userId);
+        userProfileService.evict(userId);
+        AfterCommit.run(() -> {
+            redisService.evictCachedComments(postId);
+            redisService.evictPostExists(postId);
+        });
+
+        // 3. 提交后异步收回时间线条目，点赞 / 评论 / 通知由 PostPurgeService 分批清理
+        publisher.publishEvent(TimelineRetractEvent.postDeleted(userId, postId, post.getVisibility()));
     }
 
     @Transactional
@@ -432,11 +510,13 @@ public class PostService {
         post.setEdited(true);
         Post saved = postRepository.save(post);
 
-        // 🍿 修补 timeline
-        if (saved.getVisibility().ordinal() < oldVisibility.ordinal()) {
+        // 🍿 修补 timeline：按新可见性扇出，旧受众中不再可见的部分提交后异步收回
+        if (saved.getVisibility() != oldVisibility) {
             pushPostToFollowersFeed(saved);
+            publisher.publishEvent(TimelineRetractEvent.visibilityChanged(
+                    currentUserId, postId, oldVisibility, saved.getVisibility()));
         }
 
-        return buildPostResponse(saved, currentUserId, true, true);
+        return buildPostResponse(saved, hydrate(currentUserId, List.of(saved)), true, true);
     }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.QueryCounter.Counts;
+import com.brayton.weibo.dto.QueryBudgetStats;
+import com.brayton.weibo.error.CommonErrorCode;
+import com.brayton.weibo.error.WeiboException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每个接口的 SQL / Redis 调用次数统计，用来发现 N+1。
+ * 超出预算的请求打 warn 日志并计数；压测脚本可以通过 /internal/query-budget 断言上限。
+ */
+@Slf4j
+@Service
+public class QueryBudgetService {
+
+    private final int sqlBudget;
+    private final int redisBudget;
+
+    private final ConcurrentHashMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    private final DistributionSummary sqlPerRequest;
+    private final DistributionSummary redisPerRequest;
+    private final Counter overBudget;
+
+    public QueryBudgetService(MeterRegistry registry,
+                              @Value("${query.budget.sql:20}") int sqlBudget,
+                              @Value("${query.budget.redis:10}") int redisBudget) {
+        this.sqlBudget = sqlBudget;
+        this.redisBudget = redisBudget;
+        this.sqlPerRequest = DistributionSummary.builder("weibo.request.sql")
+                .description("单个请求执行的 SQL 条数")
+                .serviceLevelObjectives(1, 5, 10, 20, 50, 100)
+                .register(registry);
+        this.redisPerRequest = DistributionSummary.builder("weibo.request.redis")
+                .description("单个请求的 Redis 往返次数")
+                .serviceLevelObjectives(1, 2, 5, 10, 20)
+                .register(registry);
+        this.overBudget = Counter.builder("weibo.request.query.budget.exceeded")
+                .register(registry);
+    }
+
+    public void record(String endpoint, Counts counts) {
+        sqlPerRequest.record(counts.sql());
+        redisPerRequest.record(counts.redis());
+
+        boolean exceeded = counts.sql() > sqlBudget || counts.redis() > redisBudget;
+        stats.computeIfAbsent(endpoint, EndpointStats::new).add(counts, exceeded);
+
+        if (exceeded) {
+            overBudget.increment();
+            log.warn("query budget exceeded: {} sql={} (budget {}) redis={} (budget {})",
+                    endpoint, counts.sql(), sqlBudget, counts.redis(), redisBudget);
+        }
+    }
+
+    public List<QueryBudgetStats> getStats() {
+        return stats.values().stream()
+                .map(EndpointStats::snapshot)
+                .sorted(Comparator.comparingInt(QueryBudgetStats::getMaxSql).reversed())
+                .toList();
+    }
+
+    /**
+     * 断言某接口到目前为止每个请求的 SQL / Redis 次数都不超过给定上限
+     */
+    public QueryBudgetStats check(String endpoint, int maxSql, int maxRedis) {
+        EndpointStats s = stats.get(endpoint);
+        QueryBudgetStats snapshot = s == null ? new EndpointStats(endpoint).snapshot() : s.snapshot();
+        if (snapshot.getMaxSql() > maxSql || snapshot.getMaxRedis() > maxRedis) {
+            throw new WeiboException(CommonErrorCode.QUERY_BUDGET_EXCEEDED);
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private static class EndpointStats {
+        private final String endpoint;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong overBudget = new AtomicLong();
+        private final AtomicInteger lastSql = new AtomicInteger();
+        private final AtomicInteger lastRedis = new AtomicInteger();
+        private final AtomicInteger maxSql = new AtomicInteger();
+        private final AtomicInteger maxRedis = new AtomicInteger();
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void add(Counts counts, boolean exceeded) {
+            requests.incrementAndGet();
+            if (exceeded) overBudget.incrementAndGet();
+            lastSql.set(counts.sql());
+            lastRedis.set(counts.redis());
+            maxSql.accumulateAndGet(counts.sql(), Math::max);
+            maxRedis.accumulateAndGet(counts.redis(), Math::max);
+        }
+
+        QueryBudgetStats snapshot() {
+            return new QueryBudgetStats(endpoint, requests.get(), overBudget.get(),
+                    lastSql.get(), lastRedis.get(), maxSql.get(), maxRedis.get());
+        }
+    }
+}
@@ -1,82 +1,756 @@
 package com.brayton.weibo.service;
 
+import com.brayton.weibo.common.CachedComment;
+import com.brayton.weibo.common.FeedCursor;
+import com.brayton.weibo.common.FeedRetentionPolicy;
+import com.brayton.weibo.common.LikeOp;
+import com.brayton.weibo.common.LongIdRedisSerializer;
+import com.brayton.weibo.common.TimelineSlice;
+import com.brayton.weibo.common.WeiboMetrics;
+import com.brayton.weibo.common.WeiboMetrics.Feed;
+import com.brayton.weibo.common.WeiboMetrics.RedisOp;
+import com.brayton.weibo.dto.UserSummary;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ExpirationOptions;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class RedisService {
 
     private final RedisTemplate<String, Object> redis;
+    // feed:* / liked:* 专用，成员用 LongIdRedisSerializer 编码
+    private final RedisTemplate<String, Long> timelineRedis;
+    private final RedisTemplate<String, UserSummary> userSummaryRedis;
+
+    private final FeedRetentionPolicy retention;
+    private final WeiboMetrics metrics;
+
+    /*
+     * feed operations
+     * 每个用户两条子时间线：
+     *   feed:{userId}    关注者的 PUBLIC / FOLLOWERS 帖子 + 自己的全部帖子
+     *   feed:{userId}:f  好友的 FRIENDS 帖子
+     * 关系或可见性变化时按子时间线整体移除，读时不再逐条过滤。
+     */
+    public static String feedKey(Long userId) {
+        return "feed:" + userId;
+    }
+
+    public static String friendFeedKey(Long userId) {
+        return "feed:" + userId + ":f";
+    }
 
-    /* feed operations */
     public void addToFeed(Long userId, Long postId, long timestamp) {
-        String key = "feed:" + userId;
-        redis.opsForZSet().add(key, postId, timestamp);
+        addToTimelines(List.of(feedKey(userId)), postId, timestamp);
+    }
+
+    // 扇出：一次 pipeline 写入所有粉丝的时间线，并在写入时按保留策略裁剪
+    public void addToFeeds(Collection<Long> userIds, Long postId, long timestamp) {
+        addToTimelines(userIds.stream().map(RedisService::feedKey).toList(), postId, timestamp);
+    }
+
+    public void addToFriendFeeds(Collection<Long> userIds, Long postId, long timestamp) {
+        addToTimelines(userIds.stream().map(RedisService::friendFeedKey).toList(), postId, timestamp);
+    }
+
+    private void addToTimelines(List<String> keys, Long postId, long timestamp) {
+        if (keys.isEmpty()) return;
+        byte[] member = LongIdRedisSerializer.encode(postId);
+
+        metrics.redis(RedisOp.FEED_WRITE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            for (String key : keys) {
+                byte[] raw = rawKey(key);
+                conn.zSetCommands().zAdd(raw, timestamp, member);
+                applyRetention(conn, raw);
+            }
+            return null;
+        }));
+    }
+
+    // 批量写入（冷启动重建 / 新关注预热），两条子时间线一次 pipeline
+    public void addAllToFeed(Long userId, Map<Long, Long> feedEntries, Map<Long, Long> friendFeedEntries) {
+        if (feedEntries.isEmpty() && friendFeedEntries.isEmpty()) return;
+
+        metrics.redis(RedisOp.FEED_WRITE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            addAll(conn, rawKey(feedKey(userId)), feedEntries);
+            addAll(conn, rawKey(friendFeedKey(userId)), friendFeedEntries);
+            return null;
+        }));
+    }
+
+    private void addAll(RedisConnection conn, byte[] key, Map<Long, Long> postTimestamps) {
+        if (postTimestamps.isEmpty()) return;
+
+        Set<Tuple> tuples = new HashSet<>();
+        postTimestamps.forEach((postId, ts) ->
+                tuples.add(Tuple.of(LongIdRedisSerializer.encode(postId), ts.doubleValue())));
+        conn.zSetCommands().zAdd(key, tuples);
+        applyRetention(conn, key);
+    }
+
+    // 长度 + 时长裁剪；TTL 只在 key 新建时设置（NX），读 feed 时再续期
+    private void applyRetention(RedisConnection conn, byte[] key) {
+        conn.zSetCommands().zRemRangeByScore(key,
+                Range.of(Range.Bound.unbounded(), Range.Bound.exclusive((double) retention.oldestAllowedTs())));
+        conn.zSetCommands().zRemRange(key, 0, -retention.getEffectiveMaxSize() - 1);
+        conn.keyCommands().expire(key, retention.getInactiveTtl().toSeconds(), ExpirationOptions.Condition.NX);
     }
 
-    public List<Long> getFeedAfter(Long userId, long lastTimestamp, int size) {
-        String key = "feed:" + userId;
+    // 从一批用户的主时间线（或好友子时间线）移除同一条帖子
+    public void removeFromFeeds(Collection<Long> userIds, Long postId, boolean friendFeed) {
+        if (userIds.isEmpty()) return;
+        byte[] member = LongIdRedisSerializer.encode(postId);
 
-        Set<Object> raw = redis.opsForZSet().reverseRangeByScore(
-                key,
-                Double.NEGATIVE_INFINITY,
-                lastTimestamp - 1,
-                0,
-                size
+        metrics.redis(RedisOp.FEED_REMOVE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            for (Long userId : userIds) {
+                conn.zSetCommands().zRem(rawKey(friendFeed ? friendFeedKey(userId) : feedKey(userId)), member);
+            }
+            return null;
+        }));
+    }
+
+    // 从某个用户的时间线移除一批帖子（取关 / 好友关系解除）
+    public void removePostsFromFeed(Long userId, Collection<Long> postIds, boolean feed, boolean friendFeed) {
+        if (postIds.isEmpty() || (!feed && !friendFeed)) return;
+
+        byte[][] members = postIds.stream().map(LongIdRedisSerializer::encode).toArray(byte[][]::new);
+        metrics.redis(RedisOp.FEED_REMOVE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            if (feed) conn.zSetCommands().zRem(rawKey(feedKey(userId)), members);
+            if (friendFeed) conn.zSetCommands().zRem(rawKey(friendFeedKey(userId)), members);
+            return null;
+        }));
+    }
+
+    // 用户在读 feed，续期
+    public void touchFeed(Long userId) {
+        metrics.redis(RedisOp.FEED_TOUCH, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            conn.keyCommands().expire(rawKey(feedKey(userId)), retention.getInactiveTtl().toSeconds());
+            conn.keyCommands().expire(rawKey(friendFeedKey(userId)), retention.getInactiveTtl().toSeconds());
+            return null;
+        }));
+    }
+
+    /**
+     * 从 cursor 之后严格向后取 count 条（带 score），两条子时间线一次 pipeline 读出后归并。
+     * 与 cursor 同分的条目也会被 ZREVRANGEBYSCORE 返回，按成员字节序跳过排在 cursor 之前的部分。
+     */
+    public TimelineSlice getFeedPage(Long userId, FeedCursor cursor, int count) {
+        byte[] feed = rawKey(feedKey(userId));
+        byte[] friendFeed = rawKey(friendFeedKey(userId));
+        Range<Double> range = rangeAfter(cursor);
+
+        List<Object> first = metrics.redis(RedisOp.FEED_PAGE, () -> timelineRedis.execute((RedisCallback<List<Object>>) conn -> {
+            conn.openPipeline();
+            conn.zSetCommands().zRevRangeByScoreWithScores(feed, range, Limit.limit().count(count));
+            conn.zSetCommands().zRevRangeByScoreWithScores(friendFeed, range, Limit.limit().count(count));
+            return conn.closePipeline();
+        }));
+
+        Runnable onRefill = () -> metrics.feedRefill(Feed.NEWEST);
+        return TimelineSlice.merge(
+                collect(feed, range, cursor, count, first.get(0), RedisOp.FEED_PAGE, onRefill),
+                collect(friendFeed, range, cursor, count, first.get(1), RedisOp.FEED_PAGE, onRefill),
+                count
         );
+    }
 
-        return raw.stream()
-                .map(id -> Long.valueOf(id.toString()))
-                .toList();
+    // cursor 同分的条目要留给 collect 按成员逐个判断，所以上界是闭区间（旧版纯时间戳 cursor 除外）
+    private static Range<Double> rangeAfter(FeedCursor cursor) {
+        return cursor == null ? Range.unbounded()
+                : Range.of(Range.Bound.unbounded(), cursor.postId() == null
+                        ? Range.Bound.exclusive((double) cursor.score())
+                        : Range.Bound.inclusive((double) cursor.score()));
     }
 
-    public void trimFeed(long userId, int maxSize) {
-        String key = "feed:" + userId;
-        redis.opsForZSet().removeRange(key, 0, -maxSize - 1);
+    // 跳过与 cursor 同分且排在它之前的条目；通常第一批就够，被跳过的条目占满一批时才补读
+    @SuppressWarnings("unchecked")
+    private TimelineSlice collect(byte[] key, Range<Double> range, FeedCursor cursor, int count, Object firstBatch,
+                                  RedisOp op, Runnable onRefill) {
+        long[] ids = new long[count];
+        long[] scores = new long[count];
+        int n = 0;
+        long offset = 0;
+        boolean hasMore = true;
+        Set<Tuple> raw = (Set<Tuple>) firstBatch;
+        int batch = count;
+
+        while (true) {
+            if (raw == null || raw.isEmpty()) {
+                hasMore = false;
+                break;
+            }
+
+            for (Tuple tuple : raw) {
+                offset++;
+                long score = tuple.getScore().longValue();
+                if (cursor != null && !cursor.precedes(score, tuple.getValue())) continue;
+                ids[n] = LongIdRedisSerializer.decode(tuple.getValue());
+                scores[n] = score;
+                n++;
+            }
+
+            if (raw.size() < batch) {
+                hasMore = false;
+                break;
+            }
+            if (n >= count) break;
+
+            long skip = offset;
+            int next = count - n;
+            batch = next;
+            onRefill.run();
+            raw = metrics.redis(op, () -> timelineRedis.execute((RedisCallback<Set<Tuple>>) conn ->
+                    conn.zSetCommands().zRevRangeByScoreWithScores(key, range, Limit.limit().offset((int) skip).count(next))));
+        }
+
+        return new TimelineSlice(Arrays.copyOf(ids, n), Arrays.copyOf(scores, n), hasMore);
+    }
+
+    public long getFeedSize(Long userId) {
+        List<Object> sizes = metrics.redis(RedisOp.FEED_SIZE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            conn.zSetCommands().zCard(rawKey(feedKey(userId)));
+            conn.zSetCommands().zCard(rawKey(friendFeedKey(userId)));
+            return null;
+        }));
+        return sizes.stream().mapToLong(size -> size == null ? 0 : (Long) size).sum();
+    }
+
+    // 重建标记：跨实例 single-flight + 冷却期，避免 feed 本来就短的用户每次读都重建
+    public boolean tryMarkFeedRebuild(Long userId, Duration cooldown) {
+        Boolean ok = metrics.redis(RedisOp.FEED_REBUILD_MARK, () ->
+                redis.opsForValue().setIfAbsent("feed:rebuild:" + userId, 1, cooldown));
+        return Boolean.TRUE.equals(ok);
+    }
+
+    // 重建失败时撤掉标记，下一次读 feed 可以马上重试
+    public void clearFeedRebuildMark(Long userId) {
+        metrics.redis(RedisOp.FEED_REBUILD_MARK, () -> redis.delete("feed:rebuild:" + userId));
     }
 
     /* like operations */
     public void addToLiked(Long userId, Long postId, long timestamp) {
         String key = "liked:" + userId;
-        redis.opsForZSet().add(key, postId, timestamp);
+        metrics.redis(RedisOp.LIKED_WRITE, () -> timelineRedis.opsForZSet().add(key, postId, timestamp));
     }
 
-    public Set<Object> getLikedAfter(Long userId, long lastTimestamp, int size) {
-        String key = "liked:" + userId;
+    // 删帖后从点赞者的 liked:{userId} 里移除
+    public void removeFromLiked(Collection<Long> userIds, Long postId) {
+        byte[] member = LongIdRedisSerializer.encode(postId);
+        metrics.redis(RedisOp.LIKED_WRITE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            for (Long userId : userIds) {
+                conn.zSetCommands().zRem(rawKey("liked:" + userId), member);
+            }
+            return null;
+        }));
+    }
 
-        return redis.opsForZSet().reverseRangeByScore(
-                key,
-                Double.NEGATIVE_INFINITY,   // min
-                lastTimestamp - 1,          // max
-                0,
-                size
-        );
+    // 点赞缓冲区落库后批量更新 liked:{userId}
+    public void applyLikedOps(Collection<LikeOp> added, Collection<LikeOp> removed) {
+        if (added.isEmpty() && removed.isEmpty()) return;
+
+        metrics.redis(RedisOp.LIKED_WRITE, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            for (LikeOp op : added) {
+                conn.zSetCommands().zAdd(rawKey("liked:" + op.userId()), op.ts(), LongIdRedisSerializer.encode(op.postId()));
+            }
+            for (LikeOp op : removed) {
+                conn.zSetCommands().zRem(rawKey("liked:" + op.userId()), LongIdRedisSerializer.encode(op.postId()));
+            }
+            return null;
+        }));
+    }
+
+    public long[] getLikedAfter(Long userId, long lastTimestamp, int size) {
+        return reverseRangeBefore("liked:" + userId, lastTimestamp, size);
+    }
+
+    /*
+     * follower leaderboard
+     * leaderboard:followers  成员 userId，score 为粉丝数；built 标记丢失（Redis flush）时从 DB 重建。
+     * 重建写进 :tmp，完成后 RENAME 成正式 key；重建期间（:rebuilding 存在）粉丝数有变化的用户记进 :dirty，
+     * 换上新 key 后再按 DB 补一遍，快照之后到达的 ZINCRBY 不会被覆盖掉
+     */
+    private static final String LEADERBOARD_KEY = "leaderboard:followers";
+    private static final String LEADERBOARD_TMP_KEY = "leaderboard:followers:tmp";
+    private static final String LEADERBOARD_BUILT_KEY = "leaderboard:followers:built";
+    private static final String LEADERBOARD_REBUILDING_KEY = "leaderboard:followers:rebuilding";
+    private static final String LEADERBOARD_DIRTY_KEY = "leaderboard:followers:dirty";
+    private static final String LEADERBOARD_LOCK_KEY = "leaderboard:followers:lock";
+
+    private static final byte[] LEADERBOARD_INCR_SCRIPT = """
+            redis.call('zincrby', KEYS[1], ARGV[1], ARGV[2])
+            if redis.call('exists', KEYS[2]) == 1 then
+                redis.call('sadd', KEYS[3], ARGV[2])
+            end
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // 没有任何用户时 :tmp 不存在，直接清掉正式 key
+    private static final byte[] LEADERBOARD_SWAP_SCRIPT = """
+            if redis.call('exists', KEYS[1]) == 1 then
+                redis.call('rename', KEYS[1], KEYS[2])
+            else
+                redis.call('del', KEYS[2])
+            end
+            redis.call('set', KEYS[3], '1')
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // ZINCRBY 与 dirty 登记在同一个脚本里，一次往返
+    public void incrLeaderboard(Long userId, int delta) {
+        metrics.redis(RedisOp.LEADERBOARD_WRITE, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.scriptingCommands().eval(LEADERBOARD_INCR_SCRIPT, ReturnType.INTEGER, 3,
+                        rawKey(LEADERBOARD_KEY), rawKey(LEADERBOARD_REBUILDING_KEY), rawKey(LEADERBOARD_DIRTY_KEY),
+                        rawKey(String.valueOf(delta)), LongIdRedisSerializer.encode(userId))));
     }
 
-    public List<Long> getRandomZSetMembers(String key, int sampleCount) {
-        long total = redis.opsForZSet().zCard(key);
-        if (total == 0) return Collections.emptyList();
+    // 拿到锁返回 token；同时打上 rebuilding 标记，租约相同
+    public String tryStartLeaderboardRebuild(Duration lease) {
+        return metrics.redis(RedisOp.LEADERBOARD_WRITE, () -> {
+            String token = tryLock(LEADERBOARD_LOCK_KEY, lease);
+            if (token == null) return null;
+            redis.execute((RedisCallback<Object>) conn -> {
+                conn.keyCommands().del(rawKey(LEADERBOARD_TMP_KEY), rawKey(LEADERBOARD_DIRTY_KEY));
+                conn.stringCommands().set(rawKey(LEADERBOARD_REBUILDING_KEY), rawKey(token), Expiration.from(lease),
+                        RedisStringCommands.SetOption.upsert());
+                return null;
+            });
+            return token;
+        });
+    }
+
+    // ZADD 覆盖分数，以 DB 为准；building 时写 :tmp，否则写正式 key
+    public void addAllToLeaderboard(Map<Long, Long> followerCounts, boolean building) {
+        if (followerCounts.isEmpty()) return;
+
+        Set<Tuple> tuples = new HashSet<>();
+        followerCounts.forEach((userId, count) ->
+                tuples.add(Tuple.of(LongIdRedisSerializer.encode(userId), count.doubleValue())));
+        byte[] key = rawKey(building ? LEADERBOARD_TMP_KEY : LEADERBOARD_KEY);
+        metrics.redis(RedisOp.LEADERBOARD_WRITE, () -> timelineRedis.execute((RedisCallback<Long>) conn ->
+                conn.zSetCommands().zAdd(key, tuples)));
+    }
+
+    // 取出（并移除）至多 count 个重建期间变过的用户
+    public List<Long> popLeaderboardDirty(int count) {
+        List<byte[]> raw = metrics.redis(RedisOp.LEADERBOARD_WRITE, () -> redis.execute((RedisCallback<List<byte[]>>) conn ->
+                conn.setCommands().sPop(rawKey(LEADERBOARD_DIRTY_KEY), count)));
+        if (raw == null) return Collections.emptyList();
+        return raw.stream().map(LongIdRedisSerializer::decode).toList();
+    }
+
+    // :tmp 原子换成正式 key 并标记 built
+    public void swapInLeaderboard() {
+        metrics.redis(RedisOp.LEADERBOARD_WRITE, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.scriptingCommands().eval(LEADERBOARD_SWAP_SCRIPT, ReturnType.INTEGER, 3,
+                        rawKey(LEADERBOARD_TMP_KEY), rawKey(LEADERBOARD_KEY), rawKey(LEADERBOARD_BUILT_KEY))));
+    }
+
+    public void finishLeaderboardRebuild(String token) {
+        metrics.redis(RedisOp.LEADERBOARD_WRITE, () -> {
+            unlock(LEADERBOARD_REBUILDING_KEY, token);
+            return unlock(LEADERBOARD_LOCK_KEY, token);
+        });
+    }
 
-        ThreadLocalRandom rand = ThreadLocalRandom.current();
-        List<Long> result = new ArrayList<>(sampleCount);
+    public boolean isLeaderboardBuilt() {
+        return Boolean.TRUE.equals(metrics.redis(RedisOp.LEADERBOARD_READ, () -> redis.hasKey(LEADERBOARD_BUILT_KEY)));
+    }
+
+    // 与 feed 相同的 (score, member) keyset 分页
+    public TimelineSlice getLeaderboardPage(FeedCursor cursor, int count) {
+        byte[] key = rawKey(LEADERBOARD_KEY);
+        Range<Double> range = rangeAfter(cursor);
+
+        Set<Tuple> first = metrics.redis(RedisOp.LEADERBOARD_READ, () -> timelineRedis.execute((RedisCallback<Set<Tuple>>) conn ->
+                conn.zSetCommands().zRevRangeByScoreWithScores(key, range, Limit.limit().count(count))));
+        return collect(key, range, cursor, count, first, RedisOp.LEADERBOARD_READ, () -> { });
+    }
+
+    /*
+     * like buffer
+     * likes:buffer:{shard}  按 postId 分片的点赞操作列表，RPUSH 追加；
+     * 落库方持有 likes:buffer:{shard}:lock 时 LRANGE 读取，提交后 LTRIM 掉已处理的部分。
+     * 连续落库失败的次数记在 likes:buffer:{shard}:attempts，超过上限的操作转入 likes:buffer:dead
+     */
+    private static final String LIKE_DEAD_KEY = "likes:buffer:dead";
 
-        for (int i = 0; i < sampleCount; i++) {
-            long index = rand.nextLong(0, total);
-            Set<Object> idSet = redis.opsForZSet().range(key, index, index);
-            if (idSet != null && !idSet.isEmpty()) {
-                Object raw = idSet.iterator().next();
-                result.add(Long.valueOf(raw.toString()));
+    private static String likeBufferKey(int shard) {
+        return "likes:buffer:" + shard;
+    }
+
+    private static String likeAttemptsKey(int shard) {
+        return likeBufferKey(shard) + ":attempts";
+    }
+
+    public void appendLikeOp(int shard, LikeOp op) {
+        metrics.redis(RedisOp.LIKE_BUFFER_APPEND, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.listCommands().rPush(rawKey(likeBufferKey(shard)), op.encode())));
+    }
+
+    // 原样返回，由落库方逐条解码，解不开的单独转入死信
+    public List<byte[]> readLikeOps(int shard, int count) {
+        List<byte[]> raw = metrics.redis(RedisOp.LIKE_BUFFER_READ, () -> redis.execute((RedisCallback<List<byte[]>>) conn ->
+                conn.listCommands().lRange(rawKey(likeBufferKey(shard)), 0, count - 1)));
+        return raw == null ? Collections.emptyList() : raw;
+    }
+
+    // 裁掉已处理的部分，同时清零失败计数
+    public void trimLikeOps(int shard, int processed) {
+        metrics.redis(RedisOp.LIKE_BUFFER_TRIM, () -> redis.executePipelined((RedisCallback<Object>) conn -> {
+            conn.listCommands().lTrim(rawKey(likeBufferKey(shard)), processed, -1);
+            conn.keyCommands().del(rawKey(likeAttemptsKey(shard)));
+            return null;
+        }));
+    }
+
+    // 当前批次第几次落库失败；计数随 trimLikeOps 清零，一天后自动过期
+    public long incrLikeFlushAttempts(int shard) {
+        List<Object> results = metrics.redis(RedisOp.LIKE_BUFFER_TRIM, () -> redis.executePipelined((RedisCallback<Object>) conn -> {
+            byte[] key = rawKey(likeAttemptsKey(shard));
+            conn.stringCommands().incr(key);
+            conn.keyCommands().expire(key, Duration.ofDays(1).toSeconds());
+            return null;
+        }));
+        return (Long) results.get(0);
+    }
+
+    public void deadLetterLikeOps(Collection<byte[]> raw) {
+        if (raw.isEmpty()) return;
+        byte[][] values = raw.toArray(byte[][]::new);
+        metrics.redis(RedisOp.LIKE_BUFFER_TRIM, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.listCommands().rPush(rawKey(LIKE_DEAD_KEY), values)));
+    }
+
+    public String tryLockLikeShard(int shard, Duration lease) {
+        return metrics.redis(RedisOp.LIKE_BUFFER_LOCK, () -> tryLock(likeBufferKey(shard) + ":lock", lease));
+    }
+
+    public void unlockLikeShard(int shard, String token) {
+        metrics.redis(RedisOp.LIKE_BUFFER_LOCK, () -> unlock(likeBufferKey(shard) + ":lock", token));
+    }
+
+    /*
+     * lease lock
+     * SET key token NX PX lease 加锁，释放时 Lua 比对 token 再 DEL，
+     * 租约过期后被别的实例拿到的锁不会被原持有者误删
+     */
+    private static final byte[] UNLOCK_SCRIPT = """
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // 拿到锁返回 token，否则返回 null
+    private String tryLock(String key, Duration lease) {
+        String token = UUID.randomUUID().toString();
+        Boolean ok = redis.execute((RedisCallback<Boolean>) conn -> conn.stringCommands().set(
+                rawKey(key), rawKey(token), Expiration.from(lease), RedisStringCommands.SetOption.ifAbsent()));
+        return Boolean.TRUE.equals(ok) ? token : null;
+    }
+
+    private Boolean unlock(String key, String token) {
+        Long deleted = redis.execute((RedisCallback<Long>) conn ->
+                conn.scriptingCommands().eval(UNLOCK_SCRIPT, ReturnType.INTEGER, 1, rawKey(key), rawKey(token)));
+        return deleted != null && deleted > 0;
+    }
+
+    /*
+     * primary pin
+     * db:primary:{userId}  写请求后的复制延迟窗口，存在期间该用户的读不走副本
+     */
+    private static String primaryPinKey(Long userId) {
+        return "db:primary:" + userId;
+    }
+
+    public void pinPrimary(Long userId, Duration window) {
+        metrics.redis(RedisOp.PRIMARY_PIN, () -> {
+            redis.opsForValue().set(primaryPinKey(userId), 1, window);
+            return null;
+        });
+    }
+
+    public boolean isPrimaryPinned(Long userId) {
+        return Boolean.TRUE.equals(metrics.redis(RedisOp.PRIMARY_PIN, () -> redis.hasKey(primaryPinKey(userId))));
+    }
+
+    /*
+     * comment cache
+     * comments:{postId}    最新的 N 条评论，新的在前；只缓存非空列表，key 不存在即未命中
+     * comments:{postId}:v  写版本，每次发 / 删评论后 INCR；回填前先读版本，
+     *                      写回时版本变了就放弃，未命中期间提交的写不会被旧快照盖掉
+     */
+    private static String commentsKey(Long postId) {
+        return "comments:" + postId;
+    }
+
+    private static String commentsVersionKey(Long postId) {
+        return "comments:" + postId + ":v";
+    }
+
+    private static final long COMMENT_VERSION_TTL_SECONDS = 3600;
+
+    private static final byte[] COMMENT_FILL_SCRIPT = """
+            local v = redis.call('get', KEYS[2]) or ''
+            if v ~= ARGV[1] then
+                return 0
+            end
+            redis.call('del', KEYS[1])
+            redis.call('rpush', KEYS[1], unpack(ARGV, 3))
+            redis.call('expire', KEYS[1], ARGV[2])
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    public List<CachedComment> getCachedComments(Long postId, int count) {
+        List<byte[]> raw = metrics.redis(RedisOp.COMMENT_CACHE_GET, () -> redis.execute((RedisCallback<List<byte[]>>) conn ->
+                conn.listCommands().lRange(rawKey(commentsKey(postId)), 0, count - 1)));
+        if (raw == null) return Collections.emptyList();
+        return raw.stream().map(CachedComment::decode).toList();
+    }
+
+    // 回填前读一次，原样交给 cacheComments；从没写过时为空串
+    public String getCommentsVersion(Long postId) {
+        byte[] raw = metrics.redis(RedisOp.COMMENT_CACHE_GET, () -> redis.execute((RedisCallback<byte[]>) conn ->
+                conn.stringCommands().get(rawKey(commentsVersionKey(postId)))));
+        return raw == null ? "" : new String(raw, StandardCharsets.UTF_8);
+    }
+
+    // 版本仍是 version 时才整体写入，返回是否写入
+    public boolean cacheComments(Long postId, List<CachedComment> comments, Duration ttl, String version) {
+        if (comments.isEmpty()) return false;
+
+        byte[][] keysAndArgs = new byte[4 + comments.size()][];
+        keysAndArgs[0] = rawKey(commentsKey(postId));
+        keysAndArgs[1] = rawKey(commentsVersionKey(postId));
+        keysAndArgs[2] = rawKey(version);
+        keysAndArgs[3] = rawKey(String.valueOf(ttl.toSeconds()));
+        for (int i = 0; i < comments.size(); i++) {
+            keysAndArgs[4 + i] = comments.get(i).encode();
+        }
+        Long filled = metrics.redis(RedisOp.COMMENT_CACHE_WRITE, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.scriptingCommands().eval(COMMENT_FILL_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs)));
+        return filled != null && filled > 0;
+    }
+
+    // 只在已缓存时插到表头，并保持长度上限。表头 id 已经 >= 新评论时不插：
+    // 相等说明回填时已经读到了它；更大说明提交顺序和 id 顺序不一致，直接删掉等下次回填
+    private static final byte[] COMMENT_PREPEND_SCRIPT = """
+            redis.call('incr', KEYS[2])
+            redis.call('expire', KEYS[2], ARGV[4])
+            local head = redis.call('lindex', KEYS[1], 0)
+            if not head then
+                return 0
+            end
+            local headId = tonumber(string.match(head, '^(%d+):'))
+            local id = tonumber(ARGV[1])
+            if headId == id then
+                return 0
+            end
+            if headId > id then
+                redis.call('del', KEYS[1])
+                return 0
+            end
+            redis.call('lpush', KEYS[1], ARGV[2])
+            redis.call('ltrim', KEYS[1], 0, tonumber(ARGV[3]) - 1)
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    public void prependCachedComment(Long postId, CachedComment comment, int maxSize) {
+        byte[][] keysAndArgs = {
+                rawKey(commentsKey(postId)),
+                rawKey(commentsVersionKey(postId)),
+                rawKey(String.valueOf(comment.id())),
+                comment.encode(),
+                rawKey(String.valueOf(maxSize)),
+                rawKey(String.valueOf(COMMENT_VERSION_TTL_SECONDS))
+        };
+        metrics.redis(RedisOp.COMMENT_CACHE_WRITE, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.scriptingCommands().eval(COMMENT_PREPEND_SCRIPT, ReturnType.INTEGER, 2, keysAndArgs)));
+    }
+
+    public void evictCachedComments(Long postId) {
+        metrics.redis(RedisOp.COMMENT_CACHE_WRITE, () -> redis.executePipelined((RedisCallback<Object>) conn -> {
+            bumpCommentsVersion(conn, postId);
+            conn.keyCommands().del(rawKey(commentsKey(postId)));
+            return null;
+        }));
+    }
+
+    // 版本只需活得比一次回填（读版本 → 查库 → 写回）长；过期后读到空串，回填照常比较
+    private static void bumpCommentsVersion(RedisConnection conn, Long postId) {
+        byte[] key = rawKey(commentsVersionKey(postId));
+        conn.stringCommands().incr(key);
+        conn.keyCommands().expire(key, COMMENT_VERSION_TTL_SECONDS);
+    }
+
+    /*
+     * post existence cache
+     * post:exists:{postId}  "1" / "0"，缓冲点赞前校验帖子存在；删帖提交后删除
+     */
+    private static String postExistsKey(Long postId) {
+        return "post:exists:" + postId;
+    }
+
+    // 未命中返回 null
+    public Boolean getPostExists(Long postId) {
+        byte[] raw = metrics.redis(RedisOp.POST_EXISTS, () -> redis.execute((RedisCallback<byte[]>) conn ->
+                conn.stringCommands().get(rawKey(postExistsKey(postId)))));
+        return raw == null ? null : raw.length == 1 && raw[0] == '1';
+    }
+
+    public void cachePostExists(Long postId, boolean exists, Duration ttl) {
+        metrics.redis(RedisOp.POST_EXISTS, () -> redis.execute((RedisCallback<Boolean>) conn ->
+                conn.stringCommands().set(rawKey(postExistsKey(postId)), rawKey(exists ? "1" : "0"),
+                        Expiration.from(ttl), RedisStringCommands.SetOption.upsert())));
+    }
+
+    public void evictPostExists(Long postId) {
+        metrics.redis(RedisOp.POST_EXISTS, () -> redis.execute((RedisCallback<Long>) conn ->
+                conn.keyCommands().del(rawKey(postExistsKey(postId)))));
+    }
+
+    /* user summary cache */
+    private static String userSummaryKey(Long userId) {
+        return "user:summary:" + userId;
+    }
+
+    // MGET，一次往返；未命中的位置为 null，与 userIds 顺序一致
+    public List<UserSummary> getUserSummaries(List<Long> userIds) {
+        if (userIds.isEmpty()) return Collections.emptyList();
+        List<String> keys = userIds.stream().map(RedisService::userSummaryKey).toList();
+        List<UserSummary> cached = metrics.redis(RedisOp.USER_CACHE_GET, () -> userSummaryRedis.opsForValue().multiGet(keys));
+        return cached == null ? Collections.nCopies(userIds.size(), null) : cached;
+    }
+
+    public void cacheUserSummaries(Collection<UserSummary> summaries, Duration ttl) {
+        if (summaries.isEmpty()) return;
+
+        metrics.redis(RedisOp.USER_CACHE_PUT, () -> userSummaryRedis.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, UserSummary> ops = (RedisOperations<String, UserSummary>) operations;
+                for (UserSummary summary : summaries) {
+                    ops.opsForValue().set(userSummaryKey(summary.getId()), summary, ttl);
+                }
+                return null;
+            }
+        }));
+    }
+
+    public void evictUserSummaries(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return;
+        List<String> keys = userIds.stream().map(RedisService::userSummaryKey).toList();
+        metrics.redis(RedisOp.USER_CACHE_EVICT, () -> userSummaryRedis.delete(keys));
+    }
+
+    /* retention sweep */
+    // SCAN feed:{userId} 与 feed:{userId}:f（跳过 feed:rebuild:* 等辅助 key），按批回调
+    public void scanFeedKeys(int batchSize, Consumer<List<String>> handler) {
+        ScanOptions options = ScanOptions.scanOptions().match("feed:[0-9]*").count(batchSize).build();
+        List<String> batch = new ArrayList<>(batchSize);
+
+        try (Cursor<String> cursor = timelineRedis.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    handler.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) handler.accept(batch);
+    }
+
+    // 对一批 key 做长度 + 时长裁剪，返回裁剪后的 ZCARD（与 keys 顺序一致）
+    public long[] trimFeeds(List<String> keys, int maxSize, long oldestAllowedTs) {
+        List<Object> results = metrics.redis(RedisOp.TRIM, () -> timelineRedis.executePipelined((RedisCallback<Object>) conn -> {
+            for (String key : keys) {
+                byte[] raw = rawKey(key);
+                conn.zSetCommands().zRemRangeByScore(raw,
+                        Range.of(Range.Bound.unbounded(), Range.Bound.exclusive((double) oldestAllowedTs)));
+                conn.zSetCommands().zRemRange(raw, 0, -maxSize - 1);
+                conn.zSetCommands().zCard(raw);
             }
+            return null;
+        }));
+
+        long[] sizes = new long[keys.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            Object card = results.get(i * 3 + 2);
+            sizes[i] = card == null ? 0 : (Long) card;
+        }
+        return sizes;
+    }
+
+    /**
+     * 两条子时间线一次 pipeline 各 ZRANDMEMBER 取 sampleCount 个（成员互不重复），
+     * 再按两边的 ZCARD 比例截取合并，整体仍是对 feed:{userId} ∪ feed:{userId}:f 的均匀抽样。
+     */
+    @SuppressWarnings("unchecked")
+    public long[] getRandomFeedMembers(Long userId, int sampleCount) {
+        byte[] feed = rawKey(feedKey(userId));
+        byte[] friendFeed = rawKey(friendFeedKey(userId));
+
+        List<Object> results = metrics.redis(RedisOp.RANDOM_SAMPLE, () -> timelineRedis.execute((RedisCallback<List<Object>>) conn -> {
+            conn.openPipeline();
+            conn.zSetCommands().zCard(feed);
+            conn.zSetCommands().zCard(friendFeed);
+            conn.zSetCommands().zRandMember(feed, sampleCount);
+            conn.zSetCommands().zRandMember(friendFeed, sampleCount);
+            return conn.closePipeline();
+        }));
+
+        long feedSize = results.get(0) == null ? 0 : (Long) results.get(0);
+        long friendSize = results.get(1) == null ? 0 : (Long) results.get(1);
+        long[] fromFeed = LongIdRedisSerializer.decodeAll((List<byte[]>) results.get(2));
+        long[] fromFriends = LongIdRedisSerializer.decodeAll((List<byte[]>) results.get(3));
+        if (feedSize + friendSize <= sampleCount) {
+            return concat(fromFeed, fromFeed.length, fromFriends, fromFriends.length);
         }
 
-        return result;
+        int friendTake = (int) Math.min(fromFriends.length, Math.round((double) sampleCount * friendSize / (feedSize + friendSize)));
+        int feedTake = Math.min(fromFeed.length, sampleCount - friendTake);
+        return concat(fromFeed, feedTake, fromFriends, friendTake);
+    }
+
+    private static long[] concat(long[] a, int aLen, long[] b, int bLen) {
+        long[] out = Arrays.copyOf(a, aLen + bLen);
+        System.arraycopy(b, 0, out, aLen, bLen);
+        return out;
+    }
+
+    // score < lastTimestamp，按 score 倒序取 size 条，直接解码成 long[]
+    private long[] reverseRangeBefore(String key, long lastTimestamp, int size) {
+        Set<byte[]> raw = metrics.redis(RedisOp.LIKED_READ, () -> timelineRedis.execute((RedisCallback<Set<byte[]>>) conn ->
+                conn.zSetCommands().zRevRangeByScore(
+                        rawKey(key),
+                        Range.of(Range.Bound.unbounded(), Range.Bound.exclusive((double) lastTimestamp)),
+                        Limit.limit().count(size)
+                )));
+        return LongIdRedisSerializer.decodeAll(raw);
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,247 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.TimeUtil;
+import com.brayton.weibo.dto.TimelineRebuildProgress;
+import com.brayton.weibo.entity.Post;
+import com.brayton.weibo.enums.PostVisibility;
+import com.brayton.weibo.repository.FollowRepository;
+import com.brayton.weibo.repository.PostRepository;
+import com.brayton.weibo.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * feed 冷启动重建：Redis flush / 淘汰 / 新部署后 feed:{userId} 丢失时，
+ * 从关注关系 + 最新帖子重新拉取时间线。
+ */
+@Service
+public class TimelineRebuildService {
+
+    private final FollowRepository followRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final RedisService redisService;
+    // 重建总是在主库上的独立事务里读：调用方可能处在走副本的只读事务中，
+    // 副本延迟时重建出的 feed 不完整，冷却期内又不会再修正
+    private final TransactionTemplate primaryTx;
+
+    // feed 少于这个数就认为需要重建
+    private final int minFeedSize;
+    // 每次重建最多写入的条数
+    private final int rebuildSize;
+    // 同一用户两次重建的最小间隔
+    private final Duration cooldown;
+    private final int bulkPageSize;
+    private final ExecutorService bulkExecutor;
+
+    // 本实例内的 single-flight：同一用户的并发请求共享一次重建
+    private final ConcurrentHashMap<Long, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+
+    // bulk 进度
+    private final AtomicBoolean bulkRunning = new AtomicBoolean(false);
+    private final AtomicLong scannedUsers = new AtomicLong();
+    private final AtomicLong rebuiltUsers = new AtomicLong();
+    private final AtomicLong failedUsers = new AtomicLong();
+    private final AtomicLong writtenEntries = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    public TimelineRebuildService(FollowRepository followRepository,
+                                  PostRepository postRepository,
+                                  UserRepository userRepository,
+                                  RedisService redisService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${feed.rebuild.min-size:20}") int minFeedSize,
+                                  @Value("${feed.rebuild.size:200}") int rebuildSize,
+                                  @Value("${feed.rebuild.cooldown-seconds:600}") long cooldownSeconds,
+                                  @Value("${feed.rebuild.bulk-page-size:500}") int bulkPageSize,
+                                  @Value("${feed.rebuild.parallelism:4}") int parallelism) {
+        this.followRepository = followRepository;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.redisService = redisService;
+        this.primaryTx = new TransactionTemplate(transactionManager);
+        this.primaryTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.primaryTx.setReadOnly(false);
+        this.minFeedSize = minFeedSize;
+        this.rebuildSize = rebuildSize;
+        this.cooldown = Duration.ofSeconds(cooldownSeconds);
+        this.bulkPageSize = bulkPageSize;
+        this.bulkExecutor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkExecutor.shutdownNow();
+    }
+
+    /**
+     * 读 feed 首页前调用：feed 缺失或过短时同步重建（single-flight）
+     */
+    public void ensureFeed(Long userId) {
+        if (redisService.getFeedSize(userId) >= minFeedSize) return;
+        rebuild(userId);
+    }
+
+    /**
+     * @return 写入的条数；被其他请求/实例抢先重建或处于冷却期时返回 0
+     */
+    public int rebuild(Long userId) {
+        CompletableFuture<Integer> mine = new CompletableFuture<>();
+        CompletableFuture<Integer> existing = inFlight.putIfAbsent(userId, mine);
+        if (existing != null) {
+            // 已经有请求在重建，等它完成即可
+            return existing.join();
+        }
+
+        try {
+            int written = redisService.tryMarkFeedRebuild(userId, cooldown) ? rebuildMarked(userId) : 0;
+            mine.complete(written);
+            return written;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(userId, mine);
+        }
+    }
+
+    private int rebuildMarked(Long userId) {
+        try {
+            return doRebuild(userId);
+        } catch (RuntimeException e) {
+            redisService.clearFeedRebuildMark(userId);
+            throw e;
+        }
+    }
+
+    // 与 PostService.pushPostToFollowersFeed 的扇出规则保持一致
+    private int doRebuild(Long userId) {
+        Map<Long, Long> feedEntries = new HashMap<>();
+        Map<Long, Long> friendEntries = new HashMap<>();
+        primaryTx.executeWithoutResult(status -> collectEntries(userId, feedEntries, friendEntries));
+
+        redisService.addAllToFeed(userId, feedEntries, friendEntries);
+        return feedEntries.size() + friendEntries.size();
+    }
+
+    private void collectEntries(Long userId, Map<Long, Long> feedEntries, Map<Long, Long> friendEntries) {
+        Set<Long> authorIds = new HashSet<>(followRepository.findFollowingIds(userId));
+        authorIds.add(userId);
+        Set<Long> friendIds = followRepository.findFriendIds(userId);
+
+        List<Post> posts = postRepository.findNewestPosts(
+                authorIds,
+                Arrays.asList(PostVisibility.values()),
+                Long.MAX_VALUE,
+                PageRequest.of(0, rebuildSize)
+        );
+
+        // 自己的帖子和关注者的 PUBLIC / FOLLOWERS 进主时间线，好友的 FRIENDS 进好友子时间线
+        for (Post post : posts) {
+            Long authorId = post.getUser().getId();
+            long ts = TimeUtil.toTs(post.getCreatedAt());
+            if (authorId.equals(userId)) {
+                feedEntries.put(post.getId(), ts);
+                continue;
+            }
+            switch (post.getVisibility()) {
+                case PUBLIC, FOLLOWERS -> feedEntries.put(post.getId(), ts);
+                case FRIENDS -> {
+                    if (friendIds.contains(authorId)) friendEntries.put(post.getId(), ts);
+                }
+                case PRIVATE -> { }
+            }
+        }
+    }
+
+    /**
+     * Redis 重启后为全部用户并行重建，已在运行时直接返回当前进度
+     */
+    public TimelineRebuildProgress rebuildAll() {
+        if (!bulkRunning.compareAndSet(false, true)) {
+            return getProgress();
+        }
+
+        scannedUsers.set(0);
+        rebuiltUsers.set(0);
+        failedUsers.set(0);
+        writtenEntries.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+
+        CompletableFuture.runAsync(this::runBulk)
+                .whenComplete((v, e) -> {
+                    finishedAt = LocalDateTime.now();
+                    bulkRunning.set(false);
+                });
+
+        return getProgress();
+    }
+
+    private void runBulk() {
+        long lastId = 0;
+        while (true) {
+            List<Long> userIds = userRepository.findIdsAfter(lastId, PageRequest.of(0, bulkPageSize));
+            if (userIds.isEmpty()) break;
+
+            List<Future<?>> futures = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                futures.add(bulkExecutor.submit(() -> rebuildForBulk(userId)));
+            }
+            // 按页等待，避免一次把全表任务都塞进队列
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ignored) {
+                    // 已在 rebuildForBulk 中计入 failedUsers
+                }
+            }
+
+            lastId = userIds.getLast();
+        }
+    }
+
+    private void rebuildForBulk(Long userId) {
+        try {
+            if (redisService.getFeedSize(userId) < minFeedSize) {
+                int written = rebuild(userId);
+                if (written > 0) {
+                    rebuiltUsers.incrementAndGet();
+                    writtenEntries.addAndGet(written);
+                }
+            }
+        } catch (RuntimeException e) {
+            failedUsers.incrementAndGet();
+        } finally {
+            scannedUsers.incrementAndGet();
+        }
+    }
+
+    public TimelineRebuildProgress getProgress() {
+        return new TimelineRebuildProgress(
+                bulkRunning.get(),
+                scannedUsers.get(),
+                rebuiltUsers.get(),
+                failedUsers.get(),
+                writtenEntries.get(),
+                startedAt,
+                finishedAt
+        );
+    }
+}
@@ -0,0 +1,122 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.FeedRetentionPolicy;
+import com.brayton.weibo.common.WeiboMetrics;
+import com.brayton.weibo.dto.TimelineRetentionStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * feed:* 后台清理：SCAN 全部时间线，按时长 + 长度裁剪，
+ * 统计每个 key 的长度分布，超出内存预算时收紧长度上限。
+ * 最近一轮的统计通过 WeiboMetrics 以 gauge 导出（weibo.timeline.retention.*）。
+ */
+@Service
+public class TimelineRetentionService {
+
+    // 长度分布桶上界，最后一个桶是 "> 最大上界"
+    private static final long[] BUCKETS = {10, 50, 100, 200, 500, 1000, 2000};
+
+    private final RedisService redisService;
+    private final FeedRetentionPolicy retention;
+
+    private final long memoryBudgetBytes;
+    // 每条 ZSET 成员的估算内存（skiplist 节点 + dict entry + 成员）
+    private final long bytesPerEntry;
+    private final int scanBatchSize;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+    private volatile TimelineRetentionStats lastStats;
+
+    public TimelineRetentionService(RedisService redisService,
+                                    FeedRetentionPolicy retention,
+                                    WeiboMetrics metrics,
+                                    @Value("${feed.retention.memory-budget-mb:512}") long memoryBudgetMb,
+                                    @Value("${feed.retention.bytes-per-entry:64}") long bytesPerEntry,
+                                    @Value("${feed.retention.scan-batch-size:200}") int scanBatchSize) {
+        this.redisService = redisService;
+        this.retention = retention;
+        this.memoryBudgetBytes = memoryBudgetMb * 1024 * 1024;
+        this.bytesPerEntry = bytesPerEntry;
+        this.scanBatchSize = scanBatchSize;
+        this.lastStats = new TimelineRetentionStats(0, 0, 0, memoryBudgetBytes,
+                retention.getEffectiveMaxSize(), Collections.emptyMap(), null);
+        metrics.timelineRetention(this::getStats, List.copyOf(toHistogramMap(new long[BUCKETS.length + 1]).keySet()));
+    }
+
+    @Scheduled(fixedDelayString = "${feed.retention.sweep-interval-ms:600000}",
+            initialDelayString = "${feed.retention.sweep-initial-delay-ms:60000}")
+    public void sweep() {
+        if (!sweeping.compareAndSet(false, true)) return;
+
+        try {
+            int maxSize = retention.getEffectiveMaxSize();
+            long oldestAllowedTs = retention.oldestAllowedTs();
+            long[] histogram = new long[BUCKETS.length + 1];
+            long[] totals = new long[2]; // [keys, entries]
+
+            redisService.scanFeedKeys(scanBatchSize, keys -> {
+                long[] sizes = redisService.trimFeeds(keys, maxSize, oldestAllowedTs);
+                for (long size : sizes) {
+                    histogram[bucketOf(size)]++;
+                    totals[1] += size;
+                }
+                totals[0] += keys.size();
+            });
+
+            long estimatedBytes = totals[1] * bytesPerEntry;
+            adjustMaxSize(estimatedBytes);
+
+            lastStats = new TimelineRetentionStats(
+                    totals[0],
+                    totals[1],
+                    estimatedBytes,
+                    memoryBudgetBytes,
+                    retention.getEffectiveMaxSize(),
+                    toHistogramMap(histogram),
+                    LocalDateTime.now()
+            );
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    // 超预算：按比例收紧下一轮的长度上限；预算充足时逐步放回配置值
+    private void adjustMaxSize(long estimatedBytes) {
+        int current = retention.getEffectiveMaxSize();
+        if (estimatedBytes > memoryBudgetBytes) {
+            retention.setEffectiveMaxSize((int) (current * ((double) memoryBudgetBytes / estimatedBytes)));
+        } else if (current < retention.getMaxSize()) {
+            double headroom = estimatedBytes == 0 ? 2.0 : Math.min((double) memoryBudgetBytes / estimatedBytes, 2.0);
+            retention.setEffectiveMaxSize((int) (current * headroom));
+        }
+    }
+
+    private static int bucketOf(long size) {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (size <= BUCKETS[i]) return i;
+        }
+        return BUCKETS.length;
+    }
+
+    private static Map<String, Long> toHistogramMap(long[] histogram) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS.length; i++) {
+            map.put("<=" + BUCKETS[i], histogram[i]);
+        }
+        map.put(">" + BUCKETS[BUCKETS.length - 1], histogram[BUCKETS.length]);
+        return map;
+    }
+
+    public TimelineRetentionStats getStats() {
+        return lastStats;
+    }
+}
@@ -0,0 +1,217 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.FeedRetentionPolicy;
+import com.brayton.weibo.common.WeiboMetrics;
+import com.brayton.weibo.enums.PostVisibility;
+import com.brayton.weibo.event.TimelineRetractEvent;
+import com.brayton.weibo.repository.FollowRepository;
+import com.brayton.weibo.repository.PostRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间线收回流水线：事务提交后把 TimelineRetractEvent 放入队列，
+ * 后台线程批量取出，按受众分批 pipeline ZREM，请求线程不再等待 Redis。
+ * 失败的收回记日志、计数，按指数退避重新入队，max-attempts 次后放弃并记 error。
+ */
+@Slf4j
+@Service
+public class TimelineRetractionService {
+
+    private final FollowRepository followRepository;
+    private final PostRepository postRepository;
+    private final RedisService redisService;
+    private final FeedRetentionPolicy retention;
+    private final WeiboMetrics metrics;
+
+    // 每个 pipeline 最多覆盖的时间线数
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final BlockingQueue<Pending> queue;
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "timeline-retraction-retry");
+        t.setDaemon(true);
+        return t;
+    });
+    private Thread worker;
+    private volatile boolean running = true;
+
+    public TimelineRetractionService(FollowRepository followRepository,
+                                     PostRepository postRepository,
+                                     RedisService redisService,
+                                     FeedRetentionPolicy retention,
+                                     WeiboMetrics metrics,
+                                     @Value("${feed.retraction.batch-size:500}") int batchSize,
+                                     @Value("${feed.retraction.queue-capacity:100000}") int queueCapacity,
+                                     @Value("${feed.retraction.max-attempts:5}") int maxAttempts,
+                                     @Value("${feed.retraction.retry-delay-ms:1000}") long retryDelayMs) {
+        this.followRepository = followRepository;
+        this.postRepository = postRepository;
+        this.redisService = redisService;
+        this.retention = retention;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::runWorker, "timeline-retraction");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        retryScheduler.shutdownNow();
+    }
+
+    // attempt 从 0 开始，重试时加一
+    private record Pending(TimelineRetractEvent event, int attempt) { }
+
+    // 回滚的事务不会收回；没有事务时直接入队
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRetract(TimelineRetractEvent event) {
+        enqueue(new Pending(event, 0));
+    }
+
+    private void enqueue(Pending pending) {
+        if (!queue.offer(pending)) {
+            // 队列满时在调用线程上直接处理，保证不丢
+            handle(pending);
+        }
+    }
+
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    private void runWorker() {
+        List<Pending> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Pending first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                queue.drainTo(batch, 99);
+                batch.forEach(this::handle);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // 单条失败不影响其余；退避后重新入队，重试耗尽时残留条目只能靠保留策略清掉
+    private void handle(Pending pending) {
+        TimelineRetractEvent event = pending.event();
+        try {
+            process(event);
+        } catch (RuntimeException e) {
+            metrics.retractError(event.getReason());
+            int attempt = pending.attempt() + 1;
+            if (attempt >= maxAttempts) {
+                log.error("timeline retraction {} user={} target={} gave up after {} attempts",
+                        event.getReason(), event.getUserId(), event.getTargetId(), attempt, e);
+                return;
+            }
+
+            long delay = retryDelayMs << (attempt - 1);
+            log.warn("timeline retraction {} user={} target={} failed (attempt {}/{}), retrying in {} ms",
+                    event.getReason(), event.getUserId(), event.getTargetId(), attempt, maxAttempts, delay, e);
+            try {
+                retryScheduler.schedule(() -> enqueue(new Pending(event, attempt)), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                // 正在关闭
+                log.error("timeline retraction {} user={} target={} dropped on shutdown",
+                        event.getReason(), event.getUserId(), event.getTargetId());
+            }
+        }
+    }
+
+    private void process(TimelineRetractEvent event) {
+        switch (event.getReason()) {
+            case UNFOLLOW -> retractUnfollow(event.getUserId(), event.getTargetId(), event.isWereFriends());
+            case POST_DELETED -> retractDeletedPost(event.getUserId(), event.getTargetId(), event.getOldVisibility());
+            case VISIBILITY_CHANGED -> retractVisibilityChange(event.getUserId(), event.getTargetId(),
+                    event.getOldVisibility(), event.getNewVisibility());
+        }
+    }
+
+    // 取关：移除被取关者的帖子；原来是好友的话，对方好友子时间线里我的 FRIENDS 帖子也移除
+    private void retractUnfollow(Long followerId, Long followingId, boolean wereFriends) {
+        int limit = retention.getMaxSize();
+
+        List<Long> followingPostIds = postRepository.findPostIds(
+                followingId,
+                List.of(PostVisibility.PUBLIC, PostVisibility.FOLLOWERS, PostVisibility.FRIENDS),
+                PageRequest.of(0, limit)
+        );
+        redisService.removePostsFromFeed(followerId, followingPostIds, true, wereFriends);
+
+        if (wereFriends) {
+            List<Long> friendPostIds = postRepository.findPostIds(
+                    followerId,
+                    List.of(PostVisibility.FRIENDS),
+                    PageRequest.of(0, limit)
+            );
+            redisService.removePostsFromFeed(followingId, friendPostIds, false, true);
+        }
+    }
+
+    private void retractDeletedPost(Long authorId, Long postId, PostVisibility visibility) {
+        redisService.removeFromFeeds(List.of(authorId), postId, false);
+        removeInBatches(audience(authorId, visibility), postId, isFriendFeed(visibility));
+    }
+
+    // 只收回旧受众里新可见性覆盖不到的部分，和重新扇出的先后顺序无关
+    private void retractVisibilityChange(Long authorId, Long postId,
+                                         PostVisibility oldVisibility, PostVisibility newVisibility) {
+        Set<Long> stale = new HashSet<>(audience(authorId, oldVisibility));
+        if (isFriendFeed(oldVisibility) == isFriendFeed(newVisibility)) {
+            stale.removeAll(audience(authorId, newVisibility));
+        }
+        removeInBatches(stale, postId, isFriendFeed(oldVisibility));
+    }
+
+    private void removeInBatches(Collection<Long> userIds, Long postId, boolean friendFeed) {
+        List<Long> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            redisService.removeFromFeeds(ids.subList(from, Math.min(from + batchSize, ids.size())), postId, friendFeed);
+        }
+    }
+
+    // 与 PostService.pushPostToFollowersFeed 的扇出受众一致
+    private Set<Long> audience(Long authorId, PostVisibility visibility) {
+        return switch (visibility) {
+            case PUBLIC, FOLLOWERS -> followRepository.findFollowerIds(authorId);
+            case FRIENDS -> followRepository.findFriendIds(authorId);
+            case PRIVATE -> Collections.emptySet();
+        };
+    }
+
+    private static boolean isFriendFeed(PostVisibility visibility) {
+        return visibility == PostVisibility.FRIENDS;
+    }
+}
@@ -0,0 +1,142 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.AfterCommit;
+import com.brayton.weibo.common.FeedCursor;
+import com.brayton.weibo.common.TimelineSlice;
+import com.brayton.weibo.dto.LeaderboardPageResponse;
+import com.brayton.weibo.dto.UserResponse;
+import com.brayton.weibo.dto.UserSummary;
+import com.brayton.weibo.entity.User;
+import com.brayton.weibo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户目录（按粉丝数排行）：Redis ZSET 按 (粉丝数, userId) keyset 分页，
+ * 资料走 UserProfileService 批量读，首页在本机缓存一小段时间。
+ * 每页代价与用户总数无关。
+ */
+@Service
+public class UserLeaderboardService {
+
+    private final UserRepository userRepository;
+    private final RedisService redisService;
+    private final UserProfileService userProfileService;
+
+    private final int rebuildPageSize;
+    private final long topPageTtlMillis;
+    private final Duration rebuildLease;
+
+    // size -> 首页
+    private final ConcurrentHashMap<Integer, CachedPage> topPages = new ConcurrentHashMap<>();
+
+    private record CachedPage(LeaderboardPageResponse page, long expiresAt) { }
+
+    public UserLeaderboardService(UserRepository userRepository,
+                                  RedisService redisService,
+                                  UserProfileService userProfileService,
+                                  @Value("${user.leaderboard.rebuild-page-size:1000}") int rebuildPageSize,
+                                  @Value("${user.leaderboard.top-cache-seconds:30}") long topPageTtlSeconds,
+                                  @Value("${user.leaderboard.rebuild-lease-seconds:600}") long rebuildLeaseSeconds) {
+        this.userRepository = userRepository;
+        this.redisService = redisService;
+        this.userProfileService = userProfileService;
+        this.rebuildPageSize = rebuildPageSize;
+        this.topPageTtlMillis = topPageTtlSeconds * 1000;
+        this.rebuildLease = Duration.ofSeconds(rebuildLeaseSeconds);
+    }
+
+    // 与 users.follower_count 的增减同步，提交后才写 Redis
+    public void onFollowerCountChanged(Long userId, int delta) {
+        AfterCommit.run(() -> redisService.incrLeaderboard(userId, delta));
+    }
+
+    // 新用户以 0 分进榜
+    public void onUserRegistered(Long userId) {
+        AfterCommit.run(() -> redisService.incrLeaderboard(userId, 0));
+    }
+
+    public LeaderboardPageResponse getPage(String cursorParam, int size) {
+        FeedCursor cursor = FeedCursor.decode(cursorParam);
+
+        boolean built = true;
+        if (cursor == null) {
+            CachedPage cached = topPages.get(size);
+            if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.page();
+            }
+            // 只在首页检查：Redis 被清空后从 DB 重建；别的实例正在重建时读到的可能不全，不缓存
+            built = redisService.isLeaderboardBuilt() || rebuild();
+        }
+
+        TimelineSlice slice = redisService.getLeaderboardPage(cursor, size);
+        Map<Long, UserSummary> summaries = userProfileService.getSummaries(
+                Arrays.stream(slice.postIds()).boxed().toList());
+
+        List<UserResponse> users = new ArrayList<>(slice.size());
+        for (long userId : slice.postIds()) {
+            UserSummary summary = summaries.get(userId);
+            if (summary != null) users.add(new UserResponse(summary, false, false));
+        }
+
+        String nextCursor = slice.isEmpty() || !slice.hasMore() ? null
+                : new FeedCursor(slice.scores()[slice.size() - 1], slice.postIds()[slice.size() - 1]).encode();
+        LeaderboardPageResponse page = new LeaderboardPageResponse(users, nextCursor);
+
+        if (cursor == null && built) {
+            topPages.put(size, new CachedPage(page, System.currentTimeMillis() + topPageTtlMillis));
+        }
+        return page;
+    }
+
+    /**
+     * 按 id 分页扫 users 全表写入临时 ZSET，完成后原子换上；Redis 锁保证全集群只有一个实例在重建。
+     * 快照期间粉丝数变过的用户换上之前和之后各按 DB 补一遍。
+     *
+     * @return 本实例完成了重建时为 true；别的实例持有锁时立即返回 false
+     */
+    public boolean rebuild() {
+        String token = redisService.tryStartLeaderboardRebuild(rebuildLease);
+        if (token == null) return false;
+
+        try {
+            long lastId = 0;
+            while (true) {
+                List<User> users = userRepository.findPageAfter(lastId, PageRequest.of(0, rebuildPageSize));
+                if (users.isEmpty()) break;
+
+                redisService.addAllToLeaderboard(followerCounts(users), true);
+                lastId = users.getLast().getId();
+            }
+
+            reconcileDirty(true);
+            redisService.swapInLeaderboard();
+            // 换上之前登记、ZINCRBY 落在旧 key 上的那部分
+            reconcileDirty(false);
+            return true;
+        } finally {
+            redisService.finishLeaderboardRebuild(token);
+        }
+    }
+
+    private void reconcileDirty(boolean building) {
+        while (true) {
+            List<Long> dirty = redisService.popLeaderboardDirty(rebuildPageSize);
+            if (dirty.isEmpty()) return;
+            redisService.addAllToLeaderboard(followerCounts(userRepository.findAllById(dirty)), building);
+        }
+    }
+
+    private static Map<Long, Long> followerCounts(List<User> users) {
+        Map<Long, Long> scores = new HashMap<>(users.size() * 2);
+        for (User user : users) {
+            scores.put(user.getId(), (long) user.getFollowerCount());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,106 @@
+package com.brayton.weibo.service;
+
+import com.brayton.weibo.common.AfterCommit;
+import com.brayton.weibo.common.PrimaryPin;
+import com.brayton.weibo.dto.UserSummary;
+import com.brayton.weibo.entity.User;
+import com.brayton.weibo.error.CommonErrorCode;
+import com.brayton.weibo.error.WeiboException;
+import com.brayton.weibo.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 用户资料批量读取：先 MGET user:summary:*，未命中的一次 findAllById 补齐并回填。
+ * 列表页不管多少人都是固定次数的往返，不再逐个 findById。
+ */
+@Service
+public class UserProfileService {
+
+    private final UserRepository userRepository;
+    private final RedisService redisService;
+    private final Duration ttl;
+    private final Duration replicaTtl;
+    private final boolean replicaReads;
+    private final boolean backfillOnStartup;
+
+    public UserProfileService(UserRepository userRepository,
+                              RedisService redisService,
+                              @Value("${user.summary.cache-ttl-seconds:300}") long ttlSeconds,
+                              @Value("${user.summary.replica-cache-ttl-seconds:10}") long replicaTtlSeconds,
+                              @Value("${datasource.replica.urls:}") String replicaUrls,
+                              @Value("${user.summary.backfill-on-startup:false}") boolean backfillOnStartup) {
+        this.userRepository = userRepository;
+        this.redisService = redisService;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.replicaTtl = Duration.ofSeconds(replicaTtlSeconds);
+        this.replicaReads = !replicaUrls.isBlank();
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    // 新增 post_count / friend_count 列后开一次，按 posts / follows 重算
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCounts() {
+        if (backfillOnStartup) {
+            userRepository.recountPostAndFriendCounts();
+        }
+    }
+
+    public UserSummary getSummary(Long userId) {
+        UserSummary summary = getSummaries(List.of(userId)).get(userId);
+        if (summary == null) {
+            throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
+        }
+        return summary;
+    }
+
+    /**
+     * @return userId -> 资料；不存在的用户不在结果里
+     */
+    public Map<Long, UserSummary> getSummaries(Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().distinct().toList();
+        if (ids.isEmpty()) return Collections.emptyMap();
+
+        Map<Long, UserSummary> result = new HashMap<>(ids.size() * 2);
+        List<Long> misses = new ArrayList<>();
+
+        List<UserSummary> cached = redisService.getUserSummaries(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            UserSummary summary = cached.get(i);
+            if (summary != null) result.put(ids.get(i), summary);
+            else misses.add(ids.get(i));
+        }
+
+        if (!misses.isEmpty()) {
+            List<UserSummary> loaded = new ArrayList<>(misses.size());
+            for (User user : userRepository.findAllById(misses)) {
+                UserSummary summary = new UserSummary(user);
+                loaded.add(summary);
+                result.put(user.getId(), summary);
+            }
+            redisService.cacheUserSummaries(loaded, fillTtl());
+        }
+
+        return result;
+    }
+
+    // 只读事务可能读的是副本，可能落后于刚提交并 evict 过的修改，这种回填只短暂缓存
+    private Duration fillTtl() {
+        boolean fromReplica = replicaReads
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !PrimaryPin.isPinned();
+        return fromReplica ? replicaTtl : ttl;
+    }
+
+    // 资料或计数变化后调用；在事务里时等提交后再删，避免并发读把旧值写回缓存
+    public void evict(Long... userIds) {
+        List<Long> ids = Arrays.asList(userIds);
+        AfterCommit.run(() -> redisService.evictUserSummaries(ids));
+    }
+}
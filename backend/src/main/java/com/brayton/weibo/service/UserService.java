@@ -4,15 +4,16 @@ import com.brayton.weibo.dto.LoginRequest;
 import com.brayton.weibo.dto.LoginResponse;
 import com.brayton.weibo.dto.RegisterRequest;
 import com.brayton.weibo.dto.UserResponse;
+import com.brayton.weibo.dto.UserSummary;
 import com.brayton.weibo.entity.User;
 import com.brayton.weibo.error.CommonErrorCode;
 import com.brayton.weibo.error.WeiboException;
 import com.brayton.weibo.repository.FollowRepository;
-import com.brayton.weibo.repository.PostRepository;
 import com.brayton.weibo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -25,7 +26,8 @@ public class UserService {
     private final JWTService jWTService;
     private final PasswordEncoder passwordEncoder;
     private final FollowRepository followRepository;
-    private final PostRepository postRepository;
+    private final UserProfileService userProfileService;
+    private final UserLeaderboardService userLeaderboardService;
 
     public void register(RegisterRequest request) {
 
@@ -40,6 +42,7 @@ public class UserService {
         // 3. 保存用户
         User newUser = new User(request.getUsername(), encodedPassword, request.getEmail());
         userRepository.save(newUser);
+        userLeaderboardService.onUserRegistered(newUser.getId());
     }
 
     public LoginResponse login(LoginRequest request) {
@@ -59,28 +62,21 @@ public class UserService {
         return new LoginResponse(jWTService.generateToken(user.getId()), user.getId().toString());
     }
 
+    @Transactional(readOnly = true)
     public UserResponse getUserInfoById(long id, long selfId) {
 
-        Optional<User> userOptional = userRepository.findById(id);
-        if (userOptional.isEmpty()) {
-            throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
+        // 资料和计数走缓存，关系两个方向一次查出
+        UserSummary summary = userProfileService.getSummary(id);
+        if (id == selfId) {
+            return new UserResponse(summary, false, false);
         }
 
-        return new UserResponse(userOptional.get(),
-                followRepository.existsByFollowerIdAndFollowingId(selfId, id),
-                followRepository.existsByFollowerIdAndFollowingId(id, selfId),
-                followRepository.findFriendCountIds(id),
-                postRepository.countPostsByUserId(id));
+        List<Long> followerIds = followRepository.findRelationFollowerIds(selfId, id);
+        return new UserResponse(summary, followerIds.contains(selfId), followerIds.contains(id));
     }
     /* Don't need relevant attribute */
     public UserResponse getUserInfoById(long id) {
-
-        Optional<User> userOptional = userRepository.findById(id);
-        if (userOptional.isEmpty()) {
-            throw new WeiboException(CommonErrorCode.USER_NOT_FOUND);
-        }
-
-        return new UserResponse(userOptional.get(), false, false, 0, 0);
+        return new UserResponse(userProfileService.getSummary(id), false, false);
     }
 
     public String getUsernameById(long id) {
@@ -122,13 +118,7 @@ public class UserService {
 
         // 4. 保存更改
         userRepository.save(user);
+        userProfileService.evict(id);
     }
 
-    public List<UserResponse> getAllUsers() {
-
-        List<User> users = userRepository.getAllUsers();
-        return users.stream()
-                .map(u -> new UserResponse(u, false, false, 0, postRepository.countPostsByUserId(u.getId())))
-                .toList();
-    }
 }
@@ -1,5 +1,7 @@
 package com.brayton.weibo.webSocket;
 
+import com.brayton.weibo.common.WeiboMetrics;
+import com.brayton.weibo.common.WeiboMetrics.Push;
 import com.brayton.weibo.entity.Notification;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -10,36 +12,37 @@ import org.springframework.stereotype.Component;
 public class WebSocketPusher {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final WeiboMetrics metrics;
 
     public void notifyUserFollow(Long userId, Notification follow) {
-        messagingTemplate.convertAndSendToUser(
+        metrics.push(Push.FOLLOW).record(() -> messagingTemplate.convertAndSendToUser(
                 userId.toString(),
                 "/queue/follow",
                 follow
-        );
+        ));
     }
 
     public void notifyUserLike(Long userId, Notification like) {
-        messagingTemplate.convertAndSendToUser(
+        metrics.push(Push.LIKE).record(() -> messagingTemplate.convertAndSendToUser(
                 userId.toString(),
                 "/queue/like",
                 like
-        );
+        ));
     }
 
     public void notifyUserComment(Long userId, Notification comment) {
-        messagingTemplate.convertAndSendToUser(
+        metrics.push(Push.COMMENT).record(() -> messagingTemplate.convertAndSendToUser(
                 userId.toString(),
                 "/queue/comment",
                 comment
-        );
+        ));
     }
 
     public void notifyUserNewPost(Long userId) {
-        messagingTemplate.convertAndSendToUser(
+        metrics.push(Push.NEW_POST).record(() -> messagingTemplate.convertAndSendToUser(
                 userId.toString(),
                 "/queue/new-post",
                 "new post content or simple signal"
-        );
+        ));
     }
 }
@@ -0,0 +1,194 @@
+package com.brayton.weibo.bench;
+
+import com.brayton.weibo.common.LikeOp;
+import com.brayton.weibo.entity.Notification;
+import com.brayton.weibo.entity.Post;
+import com.brayton.weibo.entity.User;
+import com.brayton.weibo.enums.PostStatus;
+import com.brayton.weibo.enums.PostType;
+import com.brayton.weibo.enums.PostVisibility;
+import com.brayton.weibo.event.EventType;
+import com.brayton.weibo.repository.LikeRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 写入吞吐基准：./mvnw test -Pbenchmark -Dtest=PersistenceBatchingBenchmark（需要 Docker）
+ *
+ * notifications：生产实体（IDENTITY，逐条 INSERT ... RETURNING）对比同构的 pooled 序列实体
+ * （hibernate.jdbc.batch_size=50 + reWriteBatchedInserts），说明只换主键能换来多少批量收益。
+ * likes：直写路径的单条 upsert CTE 对比缓冲落库的多行 INSERT，两者都不经过 Hibernate 取号。
+ *
+ * 每组 ROWS 行、每 TX_SIZE 行一个事务，跑 ROUNDS 轮，前 WARMUP 轮不计，输出行/秒。
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class PersistenceBatchingBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int TX_SIZE = 500;
+    private static final int ROUNDS = 4;
+    private static final int WARMUP = 2;
+    private static final int POSTS = 200;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void notifications() {
+        double identity = measure("notifications identity", i -> entityManager.persist(identityNotification(i)));
+        double pooled = measure("notifications pooled+batch", i -> entityManager.persist(pooledNotification(i)));
+
+        assertThat(count("notifications")).isEqualTo((long) ROWS * ROUNDS);
+        assertThat(count("bench_pooled_notifications")).isEqualTo((long) ROWS * ROUNDS);
+        System.out.printf("notifications: identity %.0f rows/s, pooled+batch %.0f rows/s (x%.2f)%n",
+                identity, pooled, pooled / identity);
+    }
+
+    @Test
+    void likes() {
+        long[] postIds = seedPosts();
+
+        double single = 0;
+        double multi = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            resetLikes();
+            double s = run(i -> likeRepository.insertLike((long) i, postIds[i % POSTS], LocalDateTime.now()), null);
+
+            resetLikes();
+            List<LikeOp> batch = new ArrayList<>(TX_SIZE);
+            double m = run(i -> batch.add(new LikeOp(true, i, postIds[i % POSTS], System.currentTimeMillis())), () -> {
+                likeRepository.insertLikes(batch);
+                batch.clear();
+            });
+
+            assertThat(count("likes")).isEqualTo(ROWS);
+            if (round >= WARMUP) {
+                single += s;
+                multi += m;
+            }
+        }
+
+        int measured = ROUNDS - WARMUP;
+        System.out.printf("likes: single-row CTE %.0f rows/s, multi-row insert %.0f rows/s (x%.2f)%n",
+                single / measured, multi / measured, multi / single);
+    }
+
+    // 跑 ROUNDS 轮，返回计入轮次的平均行/秒
+    private double measure(String label, IntConsumer insert) {
+        double total = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            double rate = run(insert, null);
+            System.out.printf("%s round %d: %.0f rows/s%n", label, round, rate);
+            if (round >= WARMUP) total += rate;
+        }
+        return total / (ROUNDS - WARMUP);
+    }
+
+    // 每 TX_SIZE 行提交一次；beforeCommit 用来把攒下的一批一次写出
+    private double run(IntConsumer insert, Runnable beforeCommit) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += TX_SIZE) {
+            int first = from;
+            tx.executeWithoutResult(status -> {
+                for (int i = first; i < first + TX_SIZE; i++) {
+                    insert.accept(i);
+                }
+                if (beforeCommit != null) beforeCommit.run();
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        return ROWS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private long[] seedPosts() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        return tx.execute(status -> {
+            User author = new User("bench", "x", "bench@example.com");
+            entityManager.persist(author);
+
+            long[] ids = new long[POSTS];
+            for (int i = 0; i < POSTS; i++) {
+                Post post = Post.builder()
+                        .user(author)
+                        .type(PostType.ORIGINAL)
+                        .content("post " + i)
+                        .visibility(PostVisibility.PUBLIC)
+                        .likeCount(0L)
+                        .commentCount(0L)
+                        .repostCount(0L)
+                        .status(PostStatus.NORMAL)
+                        .build();
+                entityManager.persist(post);
+                entityManager.flush();
+                ids[i] = post.getId();
+            }
+            return ids;
+        });
+    }
+
+    private void resetLikes() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.createNativeQuery("TRUNCATE likes").executeUpdate();
+            entityManager.createNativeQuery("UPDATE posts SET like_count = 0").executeUpdate();
+        });
+    }
+
+    private long count(String table) {
+        return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM " + table).getSingleResult()).longValue();
+    }
+
+    private static Notification identityNotification(int i) {
+        Notification n = new Notification();
+        n.setActorId((long) i);
+        n.setTargetId((long) (i % 1000));
+        n.setType(EventType.LIKE);
+        n.setPostId((long) i);
+        n.setCreatedAt(LocalDateTime.now());
+        return n;
+    }
+
+    private static PooledNotification pooledNotification(int i) {
+        PooledNotification n = new PooledNotification();
+        n.setActorId((long) i);
+        n.setTargetId((long) (i % 1000));
+        n.setType(EventType.LIKE);
+        n.setPostId((long) i);
+        n.setCreatedAt(LocalDateTime.now());
+        return n;
+    }
+}
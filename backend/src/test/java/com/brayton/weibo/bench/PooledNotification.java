@@ -0,0 +1,34 @@
+package com.brayton.weibo.bench;
+
+import com.brayton.weibo.event.EventType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 与 Notification 同构、只换成 pooled 序列主键的对照实体，仅供 PersistenceBatchingBenchmark 使用
+ */
+@Entity
+@Data
+@Table(name = "bench_pooled_notifications")
+public class PooledNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bench_pooled_seq")
+    @SequenceGenerator(name = "bench_pooled_seq", sequenceName = "bench_pooled_notifications_id_seq", allocationSize = 50)
+    private Long id;
+
+    private Long actorId;
+    private Long targetId;
+
+    @Enumerated(EnumType.STRING)
+    private EventType type;
+
+    private Long postId;
+    private String content;
+    private Boolean read = false;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
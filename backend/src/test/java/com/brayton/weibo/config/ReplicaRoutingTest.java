@@ -0,0 +1,120 @@
+package com.brayton.weibo.config;
+
+import com.brayton.weibo.common.PrimaryPin;
+import com.brayton.weibo.config.security.CustomUserDetails;
+import com.brayton.weibo.service.RedisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DataSourceConfig 的路由：两个独立的 PostgreSQL 容器分别充当主库和副本，
+ * 用 current_database() 区分一条 SQL 实际落在哪个库上。
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingTest {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:15").withDatabaseName("primary_db");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:15").withDatabaseName("replica_db");
+
+    // 容器在 beforeAll 里才启动，runner 每次现取 JDBC url
+    private static ApplicationContextRunner runner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceAutoConfiguration.class,
+                        DataSourceTransactionManagerAutoConfiguration.class,
+                        JdbcTemplateAutoConfiguration.class,
+                        TransactionAutoConfiguration.class))
+                .withUserConfiguration(DataSourceConfig.class)
+                .withPropertyValues(
+                        "spring.datasource.url=" + primary.getJdbcUrl(),
+                        "spring.datasource.username=" + primary.getUsername(),
+                        "spring.datasource.password=" + primary.getPassword(),
+                        "datasource.replica.username=" + replica.getUsername(),
+                        "datasource.replica.password=" + replica.getPassword());
+    }
+
+    @AfterEach
+    void clear() {
+        PrimaryPin.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica() {
+        withReplica().run(context -> assertThat(currentDatabase(context, true)).isEqualTo("replica_db"));
+    }
+
+    @Test
+    void readWriteTransactionGoesToPrimary() {
+        withReplica().run(context -> assertThat(currentDatabase(context, false)).isEqualTo("primary_db"));
+    }
+
+    @Test
+    void pinnedRequestGoesToPrimary() {
+        withReplica().run(context -> {
+            RedisService redisService = mock(RedisService.class);
+            when(redisService.isPrimaryPinned(anyLong())).thenReturn(true);
+            PrimaryPinFilter filter = new PrimaryPinFilter(redisService, replica.getJdbcUrl(), 5);
+
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(new CustomUserDetails(1L), null, List.of()));
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/posts/newest");
+            AtomicReference<String> database = new AtomicReference<>();
+
+            filter.doFilter(request, new MockHttpServletResponse(),
+                    (req, res) -> database.set(currentDatabase(context, true)));
+
+            assertThat(database.get()).isEqualTo("primary_db");
+            // 请求结束后不再固定
+            assertThat(currentDatabase(context, true)).isEqualTo("replica_db");
+        });
+    }
+
+    @Test
+    void emptyReplicaUrlsKeepEverythingOnPrimary() {
+        runner().withPropertyValues("datasource.replica.urls=").run(context -> {
+            assertThat(context).doesNotHaveBean(ReplicaRoutingDataSource.class);
+            assertThat(currentDatabase(context, true)).isEqualTo("primary_db");
+            assertThat(currentDatabase(context, false)).isEqualTo("primary_db");
+        });
+    }
+
+    private ApplicationContextRunner withReplica() {
+        return runner().withPropertyValues("datasource.replica.urls=" + replica.getJdbcUrl());
+    }
+
+    private static String currentDatabase(ApplicationContext context, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        tx.setReadOnly(readOnly);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        return tx.execute(status -> jdbc.queryForObject("SELECT current_database()", String.class));
+    }
+}
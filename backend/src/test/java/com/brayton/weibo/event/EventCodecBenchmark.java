@@ -0,0 +1,77 @@
+package com.brayton.weibo.event;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 通知消息体积与解码耗时：./mvnw test -Pbenchmark -Dtest=EventCodecBenchmark
+ *
+ * 同一个事件分别用 json / binary 两种 EventMessageConverter 编码，
+ * 输出消息体字节数、header 字节数，以及预热后每条消息的平均解码纳秒数。
+ * 只计时，编码正确性由默认测试集里的 EventCodecTest 覆盖。
+ */
+@Tag("benchmark")
+class EventCodecBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    // 毫秒精度：二进制编码的时间戳是 epoch 毫秒
+    private static final LocalDateTime TS = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private final EventMessageConverter json = new EventMessageConverter(false);
+    private final EventMessageConverter binary = new EventMessageConverter(true);
+
+    @Test
+    void sizeAndDecodeTime() {
+        List<Event> events = List.of(
+                new LikeEvent(1_234_567L, 7_654_321L, 98_765_432L, TS),
+                new FollowEvent(1_234_567L, 7_654_321L, TS),
+                new CommentEvent(1_234_567L, 7_654_321L, 98_765_432L, "这条微博写得真好 👍", TS)
+        );
+
+        System.out.printf("%-8s %10s %12s %10s %12s %14s%n",
+                "event", "json body", "json header", "bin body", "json ns/op", "binary ns/op");
+        for (Event event : events) {
+            Message jsonMessage = json.toMessage(event, new MessageProperties());
+            Message binaryMessage = binary.toMessage(event, new MessageProperties());
+
+            System.out.printf("%-8s %10d %12d %10d %12.0f %14.0f%n",
+                    event.getType(),
+                    jsonMessage.getBody().length,
+                    headerBytes(jsonMessage),
+                    binaryMessage.getBody().length,
+                    decodeNanos(json, jsonMessage),
+                    decodeNanos(binary, binaryMessage));
+        }
+    }
+
+    private static double decodeNanos(EventMessageConverter converter, Message message) {
+        Object sink = null;
+        for (int i = 0; i < WARMUP; i++) {
+            sink = converter.fromMessage(message);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = converter.fromMessage(message);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink).isNotNull();
+        return (double) elapsed / ITERATIONS;
+    }
+
+    // 类型信息放在 __TypeId__ 等 header 里，二进制格式没有这部分
+    private static int headerBytes(Message message) {
+        return message.getMessageProperties().getHeaders().entrySet().stream()
+                .mapToInt(e -> e.getKey().length() + String.valueOf(e.getValue()).length())
+                .sum();
+    }
+}
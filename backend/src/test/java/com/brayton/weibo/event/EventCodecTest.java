@@ -0,0 +1,85 @@
+package com.brayton.weibo.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 二进制通知编码的往返校验；耗时和体积对比见 EventCodecBenchmark（-Pbenchmark）
+ */
+class EventCodecTest {
+
+    // 毫秒精度：二进制编码的时间戳是 epoch 毫秒
+    private static final LocalDateTime TS = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    private final EventMessageConverter json = new EventMessageConverter(false);
+    private final EventMessageConverter binary = new EventMessageConverter(true);
+
+    @Test
+    void followRoundTrip() {
+        assertRoundTrip(new FollowEvent(1L, Long.MAX_VALUE, TS));
+    }
+
+    @Test
+    void likeRoundTrip() {
+        assertRoundTrip(new LikeEvent(1_234_567L, 7_654_321L, 98_765_432L, TS));
+    }
+
+    @Test
+    void commentRoundTrip() {
+        assertRoundTrip(new CommentEvent(1_234_567L, 7_654_321L, 98_765_432L, "这条微博写得真好", TS));
+    }
+
+    @Test
+    void nullPostIdAndContent() {
+        assertRoundTrip(new LikeEvent(1L, 2L, null, TS));
+        assertRoundTrip(new CommentEvent(1L, 2L, null, null, TS));
+        assertRoundTrip(new CommentEvent(1L, 2L, 0L, "", TS));
+    }
+
+    @Test
+    void nonBmpContent() {
+        // 代理对：emoji 和 CJK 扩展 B 区汉字，UTF-8 下各 4 字节
+        assertRoundTrip(new CommentEvent(1L, 2L, 3L, "👍🎉 𠀀𪚥 mixed 中文", TS));
+    }
+
+    @Test
+    void decodesBothFormatsWithOneConverter() {
+        CommentEvent event = new CommentEvent(1L, 2L, 3L, "hi", TS);
+        for (EventMessageConverter sender : List.of(json, binary)) {
+            Message message = sender.toMessage(event, new MessageProperties());
+            assertThat(binary.fromMessage(message)).usingRecursiveComparison().isEqualTo(event);
+            assertThat(json.fromMessage(message)).usingRecursiveComparison().isEqualTo(event);
+        }
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedBody() {
+        byte[] body = EventCodec.encode(new CommentEvent(1L, 2L, 3L, "content", TS));
+
+        byte[] wrongVersion = body.clone();
+        wrongVersion[0] = (byte) (EventCodec.VERSION + 1);
+        assertThatThrownBy(() -> EventCodec.decode(wrongVersion)).isInstanceOf(MessageConversionException.class);
+
+        byte[] truncated = Arrays.copyOf(body, body.length - 1);
+        assertThatThrownBy(() -> EventCodec.decode(truncated)).isInstanceOf(MessageConversionException.class);
+    }
+
+    private void assertRoundTrip(Event event) {
+        Event decoded = EventCodec.decode(EventCodec.encode(event));
+        assertThat(decoded).isInstanceOf(event.getClass());
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+
+        Object viaConverter = binary.fromMessage(binary.toMessage(event, new MessageProperties()));
+        assertThat(viaConverter).usingRecursiveComparison().isEqualTo(event);
+    }
+}
@@ -1,37 +1,48 @@
 'use client';
 
-import { useEffect, useState } from 'react';
+import { useCallback, useEffect, useState } from 'react';
 import api from '@/lib/api';
-import { ApiResponse, User, Gender } from '@/types'; // 直接导入 User 和 Gender
+import { ApiResponse, User, Gender, LeaderboardPageResponse } from '@/types'; // 直接导入 User 和 Gender
 import { Loader2, Users, FileText, Heart, Mars, Venus, User as UserIcon } from 'lucide-react';
 import Link from 'next/link';
 import { toast } from 'react-hot-toast';
 
+const PAGE_SIZE = 30;
+
 export default function UsersPage() {
   const [users, setUsers] = useState<User[]>([]);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [cursor, setCursor] = useState<string | null>(null);
 
-  useEffect(() => {
-    const fetchUsers = async () => {
-      try {
-        // 假设获取所有用户的接口是 /users
-        const res = await api.get<ApiResponse<User[]>>('/users'); 
-        if (res.data.code === 0) {
-          setUsers(res.data.data || []);
-        } else {
-          toast.error(res.data.message || 'Failed to load users');
-        }
-      } catch (error) {
-        console.error(error);
-        toast.error('Network error');
-      } finally {
-        setLoading(false);
-      }
-    };
+  // 按粉丝数排行，cursor 分页
+  const fetchUsers = useCallback(async (nextCursor: string | null) => {
+    if (nextCursor) setLoadingMore(true);
+    try {
+      const params = new URLSearchParams({ size: PAGE_SIZE.toString() });
+      if (nextCursor) params.append('cursor', nextCursor);
 
-    fetchUsers();
+      const res = await api.get<ApiResponse<LeaderboardPageResponse>>(`/users?${params.toString()}`);
+      if (res.data.code === 0) {
+        const page = res.data.data;
+        setUsers(prev => nextCursor ? [...prev, ...(page.users || [])] : (page.users || []));
+        setCursor(page.nextCursor);
+      } else {
+        toast.error(res.data.message || 'Failed to load users');
+      }
+    } catch (error) {
+      console.error(error);
+      toast.error('Network error');
+    } finally {
+      setLoading(false);
+      setLoadingMore(false);
+    }
   }, []);
 
+  useEffect(() => {
+    fetchUsers(null);
+  }, [fetchUsers]);
+
   // 根据 Gender 枚举渲染图标
   const getGenderIcon = (gender: Gender | null) => {
     switch (gender) {
@@ -129,6 +140,18 @@ export default function UsersPage() {
             ))}
           </div>
         )}
+
+        {!loading && cursor && (
+          <div className="flex justify-center mt-8">
+            <button
+              onClick={() => fetchUsers(cursor)}
+              disabled={loadingMore}
+              className="px-6 py-2 text-sm font-medium text-blue-600 bg-white border border-gray-200 rounded-full hover:bg-blue-50 disabled:opacity-50"
+            >
+              {loadingMore ? <Loader2 className="animate-spin" size={16} /> : 'Load more'}
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
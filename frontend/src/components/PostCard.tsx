@@ -1,6 +1,6 @@
 'use client';
 
-import { Post, Comment, PostVisibility, PostType } from '@/types';
+import { Post, Comment, CommentPageResponse, PostVisibility, PostType } from '@/types';
 import { 
   Heart, MessageCircle, Trash2, AlertCircle, Send, 
   MoreHorizontal, Globe, Lock, Users, UserCheck, Eye, X, Edit,
@@ -50,6 +50,8 @@ export default function PostCard({ post, currentUserId, onDelete }: PostCardProp
   const [comments, setComments] = useState<Comment[]>([]);
   const [commentsLoading, setCommentsLoading] = useState(false);
   const [commentsLoaded, setCommentsLoaded] = useState(false);
+  const [commentsCursor, setCommentsCursor] = useState<number | null>(null);
+  const [commentsLoadingMore, setCommentsLoadingMore] = useState(false);
 
   // --- State: Delete Comment Modal ---
   const [commentToDelete, setCommentToDelete] = useState<number | null>(null);
@@ -183,10 +185,25 @@ export default function PostCard({ post, currentUserId, onDelete }: PostCardProp
     setCommentsLoading(true);
     try {
         const res = await api.get(`/posts/${post.id}/comments`);
-        if (res.data.code === 0) { setComments(res.data.data); setCommentsLoaded(true); }
+        if (res.data.code === 0) {
+          const page: CommentPageResponse = res.data.data;
+          setComments(page.comments); setCommentsCursor(page.nextCursor); setCommentsLoaded(true);
+        }
     } catch (e) { toast.error("Failed to load comments"); } 
     finally { setCommentsLoading(false); }
   };
+  const loadMoreComments = async () => {
+    if (commentsCursor === null || commentsLoadingMore) return;
+    setCommentsLoadingMore(true);
+    try {
+        const res = await api.get(`/posts/${post.id}/comments?cursor=${commentsCursor}`);
+        if (res.data.code === 0) {
+          const page: CommentPageResponse = res.data.data;
+          setComments(prev => [...prev, ...page.comments]); setCommentsCursor(page.nextCursor);
+        }
+    } catch (e) { toast.error("Failed to load comments"); }
+    finally { setCommentsLoadingMore(false); }
+  };
   const toggleCommentSection = () => {
       const newState = !showCommentBox; setShowCommentBox(newState);
       if (newState && !commentsLoaded) loadComments();
@@ -200,7 +217,10 @@ export default function PostCard({ post, currentUserId, onDelete }: PostCardProp
         if (res.data.code === 0) {
           toast.success("Comment published!"); setCommentText(''); setCommentCount(prev => prev + 1);
           const listRes = await api.get(`/posts/${post.id}/comments`);
-          if(listRes.data.code === 0) { setComments(listRes.data.data); setCommentsLoaded(true); }
+          if(listRes.data.code === 0) {
+            const page: CommentPageResponse = listRes.data.data;
+            setComments(page.comments); setCommentsCursor(page.nextCursor); setCommentsLoaded(true);
+          }
         } else { toast.error(res.data.message || "Failed to publish"); }
       } catch (error) { toast.error("Network error"); } finally { setIsPostingComment(false); }
   };
@@ -444,6 +464,11 @@ export default function PostCard({ post, currentUserId, onDelete }: PostCardProp
                     </div>
                 </div>
               )) : <div className="text-center text-gray-400 text-sm py-4">No comments yet.</div>}
+              {!commentsLoading && commentsCursor !== null && (
+                <button onClick={loadMoreComments} disabled={commentsLoadingMore} className="w-full text-center text-sm text-blue-600 hover:underline disabled:opacity-50">
+                  {commentsLoadingMore ? 'Loading...' : 'Load more comments'}
+                </button>
+              )}
             </div>
           </div>
         )}
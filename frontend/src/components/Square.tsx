@@ -3,7 +3,7 @@
 import { useEffect, useState, useCallback, useRef } from 'react';
 import { useRouter } from 'next/navigation';
 import api from '@/lib/api';
-import { ApiResponse, Post, User } from '@/types';
+import { ApiResponse, FeedPageResponse, Post, User } from '@/types';
 import PostCard from './PostCard'; 
 import CreatePostWidget from './CreatePostWidget'; 
 import { toast } from 'react-hot-toast';
@@ -25,6 +25,7 @@ export default function Square({ currentTab }: SquareProps) {
   const [loading, setLoading] = useState(true); 
   const [loadingMore, setLoadingMore] = useState(false); 
   const [hasMore, setHasMore] = useState(true); 
+  const [feedCursor, setFeedCursor] = useState<string | null>(null); // newest 的复合 cursor
   const [me, setMe] = useState<User | null>(null);
 
   // --- Refs ---
@@ -72,15 +73,25 @@ export default function Square({ currentTab }: SquareProps) {
         }
       }
 
-      const res = await api.get<ApiResponse<Post[]>>(`${baseUrl}?${params.toString()}`);
+      const res = await api.get<ApiResponse<Post[] | FeedPageResponse>>(`${baseUrl}?${params.toString()}`);
 
       if (res.data.code === 0) {
-        const newPosts = res.data.data || [];
-        
+        let newPosts: Post[];
+
+        if (currentTab === 'newest') {
+          // newest 返回 { posts, nextCursor }，由后端决定是否还有下一页
+          const page = res.data.data as FeedPageResponse;
+          newPosts = page?.posts || [];
+          setFeedCursor(page?.nextCursor ?? null);
+          setHasMore(!!page?.nextCursor);
+        } else {
+          newPosts = (res.data.data as Post[]) || [];
+        }
+
         // 如果是 following，强制设置 hasMore 为 false，停止分页
         if (currentTab === 'following') {
           setHasMore(false);
-        } else {
+        } else if (currentTab !== 'newest') {
           // 其他 Tab 保持原有的分页判断逻辑
           if (newPosts.length < PAGE_SIZE) {
             setHasMore(false);
@@ -127,6 +138,7 @@ export default function Square({ currentTab }: SquareProps) {
 
     setPosts([]); 
     setHasMore(true);
+    setFeedCursor(null);
     fetchPosts(true); 
   }, [currentTab, fetchPosts]);
 
@@ -137,9 +149,8 @@ export default function Square({ currentTab }: SquareProps) {
     const lastPost = posts[posts.length - 1];
 
     if (currentTab === 'newest') {
-      // 使用 createTime 转时间戳
-      const cursor = new Date(lastPost.createdAt).getTime(); 
-      fetchPosts(false, cursor);
+      // 使用后端返回的复合 cursor
+      if (feedCursor) fetchPosts(false, feedCursor);
     } else {
       // Friends 仍然使用 ID
       fetchPosts(false, lastPost.id);
@@ -3,7 +3,7 @@
 import { useEffect, useState, useRef, useCallback, ChangeEvent } from 'react';
 import api from '@/lib/api';
 import { convertToJpegIfNeeded } from '@/lib/imageUtils';
-import { ApiResponse, User, Post, LikedPostsResponse } from '@/types';
+import { ApiResponse, User, Post, LikedPostsResponse, UserPageResponse } from '@/types';
 import { useRouter } from 'next/navigation';
 import { toast } from 'react-hot-toast';
 import { Layout, Users, Heart, UserPlus, UserMinus, UserCheck, Loader2, Camera, ThumbsUp } from 'lucide-react';
@@ -49,6 +49,7 @@ export default function UserProfileClient({ viewedUserId, activeTab }: UserProfi
   const [listLoading, setListLoading] = useState(false);
   const [listLoadingMore, setListLoadingMore] = useState(false);
   const [listHasMore, setListHasMore] = useState(true);
+  const [listCursor, setListCursor] = useState<number | null>(null);
 
   const observerTarget = useRef<HTMLDivElement>(null);
 
@@ -147,7 +148,7 @@ export default function UserProfileClient({ viewedUserId, activeTab }: UserProfi
   }, [viewedUserId]);
 
   // 4. 获取用户列表逻辑
-  const fetchUserList = useCallback(async (isInit: boolean, lastId?: number) => {
+  const fetchUserList = useCallback(async (isInit: boolean, cursor?: number) => {
     let urlBase = '';
     if (activeTab === 'following') urlBase = `/user/${viewedUserId}/following`;
     else if (activeTab === 'followers') urlBase = `/user/${viewedUserId}/followers`;
@@ -164,16 +165,23 @@ export default function UserProfileClient({ viewedUserId, activeTab }: UserProfi
         params.append('size', '10000');
       } else {
         params.append('size', PAGE_SIZE.toString());
-        if (lastId) params.append('lastId', lastId.toString());
+        if (cursor) params.append('cursor', cursor.toString());
       }
 
-      const res = await api.get<ApiResponse<User[]>>(`${urlBase}?${params.toString()}`);
+      const res = await api.get<ApiResponse<User[] | UserPageResponse>>(`${urlBase}?${params.toString()}`);
 
       if (res.data.code === 0) {
-        const newUsers = res.data.data || [];
-        
-        if (activeTab === 'friends') setListHasMore(false);
-        else setListHasMore(newUsers.length >= PAGE_SIZE);
+        let newUsers: User[];
+        if (activeTab === 'friends') {
+          newUsers = (res.data.data as User[]) || [];
+          setListHasMore(false);
+        } else {
+          // 关注 / 粉丝列表按关系 id 翻页
+          const page = res.data.data as UserPageResponse;
+          newUsers = page.users || [];
+          setListCursor(page.nextCursor);
+          setListHasMore(!!page.nextCursor);
+        }
 
         if (isInit) setUserList(newUsers);
         else setUserList(prev => [...prev, ...newUsers]);
@@ -210,6 +218,7 @@ export default function UserProfileClient({ viewedUserId, activeTab }: UserProfi
     if (activeTab === 'profile' || activeTab === 'liked') return;
     setUserList([]); 
     setListHasMore(true);
+    setListCursor(null);
     fetchUserList(true);
   }, [activeTab, fetchUserList]);
 
@@ -223,8 +232,8 @@ export default function UserProfileClient({ viewedUserId, activeTab }: UserProfi
       if (likedLoadingMore || !likedHasMore || likedPosts.length === 0 || likedCursor === null) return;
       fetchLikedPosts(false, likedCursor);
     } else {
-      if (listLoadingMore || !listHasMore || userList.length === 0) return;
-      fetchUserList(false, Number(userList[userList.length - 1].id)); 
+      if (listLoadingMore || !listHasMore || userList.length === 0 || listCursor === null) return;
+      fetchUserList(false, listCursor);
     }
   };
 
@@ -96,11 +96,32 @@ export interface Comment {
   createdAt: string;
 }
 
+export interface CommentPageResponse {
+  comments: Comment[];
+  nextCursor: number | null;
+}
+
 export interface LikedPostsResponse {
   posts: Post[];
   nextCursor: number;
 }
 
+// newest feed: nextCursor 为不透明字符串，null 表示没有更多
+export interface FeedPageResponse {
+  posts: Post[];
+  nextCursor: string | null;
+}
+
+export interface UserPageResponse {
+  users: User[];
+  nextCursor: number | null;
+}
+
+export interface LeaderboardPageResponse {
+  users: User[];
+  nextCursor: string | null;
+}
+
 export interface NotificationCounts {
   follow: number;
   like: number;